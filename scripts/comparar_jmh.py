@@ -0,0 +1,50 @@
+#!/usr/bin/env python3
+"""
+Compara um resultado JMH (-rf json) com a baseline versionada em src/jmh/baseline.
+
+Uso:
+    python3 scripts/comparar_jmh.py src/jmh/baseline/textcleaner-mapeamento.json target/jmh-result.json
+
+Mostra, por benchmark/parâmetros, o throughput e a alocação por operação (gc.alloc.rate.norm)
+das duas execuções e a variação percentual. Benchmarks que só existem de um lado são listados.
+"""
+import json
+import sys
+
+
+def carregar(caminho):
+    with open(caminho, encoding="utf-8") as f:
+        resultados = json.load(f)
+    out = {}
+    for r in resultados:
+        params = ",".join(f"{k}={v}" for k, v in sorted((r.get("params") or {}).items()))
+        nome = r["benchmark"].rsplit(".", 2)[-2] + "." + r["benchmark"].rsplit(".", 1)[-1]
+        alloc = r.get("secondaryMetrics", {}).get("gc.alloc.rate.norm", {}).get("score")
+        out[(nome, params)] = (r["primaryMetric"]["score"], r["primaryMetric"]["scoreUnit"], alloc)
+    return out
+
+
+def variacao(antes, depois):
+    if antes is None or depois is None or antes == 0:
+        return "-"
+    return f"{(depois - antes) / antes * 100:+.1f}%"
+
+
+def main():
+    if len(sys.argv) != 3:
+        print(__doc__)
+        sys.exit(1)
+    base, atual = carregar(sys.argv[1]), carregar(sys.argv[2])
+
+    print(f"{'benchmark':45} {'params':20} {'baseline':>12} {'atual':>12} {'Δ':>8} {'B/op base':>11} {'B/op atual':>11} {'Δ':>8}")
+    for chave in sorted(base.keys() | atual.keys()):
+        b, a = base.get(chave), atual.get(chave)
+        if b is None or a is None:
+            print(f"{chave[0]:45} {chave[1]:20} {'só na ' + ('baseline' if a is None else 'atual'):>12}")
+            continue
+        print(f"{chave[0]:45} {chave[1]:20} {b[0]:12.3f} {a[0]:12.3f} {variacao(b[0], a[0]):>8} "
+              f"{(b[2] or 0):11.1f} {(a[2] or 0):11.1f} {variacao(b[2], a[2]):>8}  ({a[1]})")
+
+
+if __name__ == "__main__":
+    main()
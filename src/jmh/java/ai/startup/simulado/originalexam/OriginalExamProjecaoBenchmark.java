@@ -0,0 +1,135 @@
+package ai.startup.simulado.originalexam;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de decodificar o que o Mongo devolve nas leituras de OriginalExam, completo x com projeção
+ * (bytes BSON -> Document -> OriginalExam pelo MappingMongoConverter, o mesmo caminho do MongoTemplate).
+ * Sem rede: os bytes são os documentos do seed_data codificados como o driver os recebe.
+ * <ul>
+ *   <li>{@code modulo2}: completo = findByExamId (1 documento inteiro); projecao = as duas leituras do
+ *       getModule2Questions (cabeçalho + metadata, depois cabeçalho + module_2_hard).</li>
+ *   <li>{@code ids}: completo = findByIsActiveTrue (todos os documentos ativos); projecao =
+ *       findActiveExamIds (só _id e exam_id).</li>
+ * </ul>
+ * Os bytes por chamada são impressos no setup (linha "[bytes]").
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OriginalExamProjecaoBenchmark {
+
+    private static final Path SEED_DATA = Paths.get("src/main/resources/seed_data");
+    private static final List<String> CABECALHO = List.of("_id", "exam_id", "name", "is_adaptive", "is_active", "metadata");
+
+    @Param({"modulo2", "ids"})
+    public String consulta;
+
+    @Param({"completo", "projecao"})
+    public String leitura;
+
+    private MappingMongoConverter converter;
+    private final DocumentCodec codec = new DocumentCodec();
+    private List<byte[]> resposta;
+
+    @Setup
+    public void preparar() throws IOException {
+        MongoCustomConversions conversions = new MongoCustomConversions(List.of());
+        MongoMappingContext contexto = new MongoMappingContext();
+        contexto.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        contexto.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, contexto);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        List<Document> exames = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(SEED_DATA, "original_exam_0*.json")) {
+            for (Path p : ds) exames.add(comoNoBanco(Document.parse(Files.readString(p))));
+        }
+        exames.sort((a, b) -> a.getString("exam_id").compareTo(b.getString("exam_id")));
+        Document exame = exames.stream().filter(d -> "SAT_ORIGINAL_011".equals(d.getString("exam_id")))
+                .findFirst().orElse(exames.get(0));
+
+        List<Document> docs = new ArrayList<>();
+        boolean completo = "completo".equals(leitura);
+        if ("modulo2".equals(consulta)) {
+            if (completo) {
+                docs.add(exame);
+            } else {
+                docs.add(projetar(exame, List.of()));
+                docs.add(projetar(exame, List.of("module_2_hard")));
+            }
+        } else {
+            for (Document d : exames) docs.add(completo ? d : projetar(d, null));
+        }
+
+        resposta = new ArrayList<>();
+        long bytes = 0;
+        for (Document d : docs) {
+            byte[] b = bson(d);
+            resposta.add(b);
+            bytes += b.length;
+        }
+        System.out.printf("[bytes] consulta=%s leitura=%s: %d documento(s), %d bytes por chamada%n",
+                consulta, leitura, docs.size(), bytes);
+    }
+
+    @Benchmark
+    public List<OriginalExam> decodificar() {
+        List<OriginalExam> out = new ArrayList<>(resposta.size());
+        for (byte[] b : resposta) {
+            Document d = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(b)), DecoderContext.builder().build());
+            out.add(converter.read(OriginalExam.class, d));
+        }
+        return out;
+    }
+
+    // created_at é data no Mongo (no seed vem como string ISO)
+    private static Document comoNoBanco(Document d) {
+        d.put("_id", new ObjectId());
+        if (d.get("created_at") instanceof String s) d.put("created_at", Date.from(Instant.parse(s)));
+        return d;
+    }
+
+    /** Campos do cabeçalho mais {@code extras}; {@code extras == null} = só _id e exam_id. */
+    private static Document projetar(Document d, List<String> extras) {
+        Document out = new Document();
+        List<String> campos = extras == null ? List.of("_id", "exam_id") : CABECALHO;
+        for (String c : campos) if (d.containsKey(c)) out.put(c, d.get(c));
+        if (extras != null) for (String c : extras) if (d.containsKey(c)) out.put(c, d.get(c));
+        return out;
+    }
+
+    private byte[] bson(Document d) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), d, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,152 @@
+package ai.startup.simulado.perfil;
+
+import ai.startup.simulado.questaosimulado.QuestaoResumo;
+import ai.startup.simulado.support.TemplateLoader;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trabalho com datas na agregação do perfil, antes x depois das datas em epoch ms.
+ * Uma operação = reconstruir o perfil de um usuário com 10 simulados (440 questões).
+ * <ul>
+ *   <li>{@code isoComParse}: a formulação antiga isolada (last_seen_at_sc como String ISO:
+ *       LocalDateTime.parse do valor anterior e do novo a cada questão, cooldown contra um
+ *       LocalDateTime.now() por questão, e parse de dois valores por structure no fecharSubskills).</li>
+ *   <li>{@code epoch}: a formulação atual isolada (comparação de longs, cooldown aritmético contra um
+ *       único "agora", ISO só na serialização).</li>
+ *   <li>{@code engineAtual}: agregarQuestoes + montarPerfil completos, para dar a escala.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PerfilTimestampBenchmark {
+
+    private static final int SIMULADOS = 10;
+    private static final int QUESTOES_POR_SIMULADO = 44;
+    private static final long MS_POR_DIA = 86_400_000L;
+    private static final String[] DIFICULDADES = {"easy", "medium", "hard"};
+
+    private PerfilEngine engine;
+    private PerfilTemplate template;
+    private List<QuestaoResumo> questoes;
+    private Map<String, LocalDateTime> datas;
+    private Map<String, Long> datasEpoch;
+    private long agora;
+
+    @Setup
+    public void preparar() {
+        var provider = new PerfilTemplateProvider(new TemplateLoader(), new DefaultResourceLoader(),
+                "classpath:templates/profile_template.json");
+        provider.iniciar();
+        engine = new PerfilEngine(provider);
+        template = provider.getTemplate();
+
+        Random rnd = new Random(20250510L);
+        LocalDateTime base = LocalDateTime.of(2025, 5, 10, 12, 0);
+        agora = PerfilDenso.epoch(base);
+        questoes = new ArrayList<>();
+        datas = new HashMap<>();
+        datasEpoch = new HashMap<>();
+        for (int s = 0; s < SIMULADOS; s++) {
+            String simId = "sim" + s;
+            LocalDateTime data = base.minusHours(rnd.nextInt(30 * 24));
+            datas.put(simId, data);
+            datasEpoch.put(simId, PerfilDenso.epoch(data));
+            for (int k = 0; k < QUESTOES_POR_SIMULADO; k++) {
+                int i = rnd.nextInt(template.tamanho());
+                questoes.add(new QuestaoResumo(template.topic(i), template.subskill(i), template.structure(i),
+                        DIFICULDADES[rnd.nextInt(3)], rnd.nextBoolean() ? "A" : "B", "A",
+                        rnd.nextInt(4) == 0, rnd.nextInt(6) == 0, simId));
+            }
+        }
+    }
+
+    @Benchmark
+    public Object isoComParse() {
+        String[] lastSeen = new String[template.tamanho()];
+        int[] cooldown = new int[template.tamanho()];
+        for (QuestaoResumo q : questoes) {
+            int i = template.indice(q.topic(), q.subskill(), q.structure());
+            if (i < 0) continue;
+
+            LocalDateTime seenAt = datas.get(q.idFormulario());
+            String prevSeen = lastSeen[i];
+            String newSeen = prevSeen;
+            if (seenAt != null) {
+                if (prevSeen == null) newSeen = seenAt.toString();
+                else if (seenAt.isAfter(LocalDateTime.parse(prevSeen))) newSeen = seenAt.toString();
+            }
+            if (newSeen != null) {
+                long days = Duration.between(LocalDateTime.parse(newSeen), LocalDateTime.now()).toDays();
+                cooldown[i] = (int) Math.max(0, 2 - days);
+            }
+            lastSeen[i] = newSeen;
+        }
+
+        String[] lastSeenSub = new String[template.subskills().size()];
+        int s = 0;
+        for (var sub : template.subskills()) {
+            String max = null;
+            for (int i = sub.inicio(); i < sub.fim(); i++) {
+                String st = lastSeen[i];
+                if (st == null) continue;
+                if (max == null) max = st;
+                else if (LocalDateTime.parse(st).isAfter(LocalDateTime.parse(max))) max = st;
+            }
+            lastSeenSub[s++] = max;
+        }
+        return new Object[]{lastSeen, cooldown, lastSeenSub};
+    }
+
+    @Benchmark
+    public Object epoch() {
+        long[] ultimaVez = new long[template.tamanho()];
+        Arrays.fill(ultimaVez, PerfilDenso.NUNCA);
+        for (QuestaoResumo q : questoes) {
+            int i = template.indice(q.topic(), q.subskill(), q.structure());
+            if (i < 0) continue;
+            Long seenAt = datasEpoch.get(q.idFormulario());
+            if (seenAt != null && seenAt > ultimaVez[i]) ultimaVez[i] = seenAt;
+        }
+
+        // serialização: cooldown e ISO por structure, max por subskill
+        String[] lastSeen = new String[template.tamanho()];
+        int[] cooldown = new int[template.tamanho()];
+        String[] lastSeenSub = new String[template.subskills().size()];
+        int s = 0;
+        for (var sub : template.subskills()) {
+            long max = PerfilDenso.NUNCA;
+            for (int i = sub.inicio(); i < sub.fim(); i++) {
+                long visto = ultimaVez[i];
+                if (visto == PerfilDenso.NUNCA) continue;
+                cooldown[i] = (int) Math.max(0, 2 - (agora - visto) / MS_POR_DIA);
+                lastSeen[i] = PerfilDenso.data(visto).toString();
+                if (visto > max) max = visto;
+            }
+            lastSeenSub[s++] = max == PerfilDenso.NUNCA ? null : PerfilDenso.data(max).toString();
+        }
+        return new Object[]{lastSeen, cooldown, lastSeenSub};
+    }
+
+    @Benchmark
+    public Map<String, TopicDTO> engineAtual() {
+        PerfilAcumulado acumulado = new PerfilAcumulado();
+        PerfilDenso denso = engine.carregar(acumulado);
+        engine.agregarQuestoes(denso, questoes, new PerfilEngine.Contexto(datasEpoch, agora));
+        return engine.montarPerfil(denso, new PerfilEngine.Contexto(null, agora));
+    }
+}
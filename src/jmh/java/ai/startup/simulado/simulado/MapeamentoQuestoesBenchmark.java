@@ -0,0 +1,66 @@
+package ai.startup.simulado.simulado;
+
+import ai.startup.simulado.originalexam.OriginalExam;
+import ai.startup.simulado.questaosimulado.QuestoesCreateItemDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapeamento das questões para o formato da API de Questões (uma operação = um módulo inteiro).
+ * Entradas: módulo gerado pelo modelo (src/jmh/resources/modelo_resposta_modulo.json, no formato
+ * da resposta do ModeloClient) e o simulado original 011 do seed_data, já como ExamQuestion
+ * (como o OriginalExamService entrega).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MapeamentoQuestoesBenchmark {
+
+    private static final String SIM = "6650f0c2a1b2c3d4e5f60718";
+    private static final String USER = "6650f0c2a1b2c3d4e5f60001";
+
+    private Map<String, Object> moduloModelo;
+    private Map<String, Object> exameModulo1;
+    private Map<String, Object> exameModulo2;
+
+    @Setup
+    public void carregar() throws IOException {
+        ObjectMapper om = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        try (InputStream in = getClass().getResourceAsStream("/modelo_resposta_modulo.json")) {
+            moduloModelo = om.readValue(in, new TypeReference<>() {});
+        }
+
+        JsonNode exame = om.readTree(Paths.get("src/main/resources/seed_data/original_exam_011.json").toFile());
+        TypeReference<List<OriginalExam.ExamQuestion>> lista = new TypeReference<>() {};
+        exameModulo1 = Map.of("module_1", om.convertValue(exame.get("module_1"), lista));
+        exameModulo2 = Map.of("questions", om.convertValue(exame.get("module_2_hard"), lista));
+    }
+
+    @Benchmark
+    public List<QuestoesCreateItemDTO> mapModeloParaQuestoes() {
+        return SimuladoService.mapModeloParaQuestoes(SIM, USER, moduloModelo, 1);
+    }
+
+    @Benchmark
+    public List<QuestoesCreateItemDTO> mapOriginalExamModule1() {
+        return SimuladoService.mapOriginalExamModule1(SIM, USER, exameModulo1);
+    }
+
+    @Benchmark
+    public List<QuestoesCreateItemDTO> mapOriginalExamModule2() {
+        return SimuladoService.mapOriginalExamModule2(SIM, USER, exameModulo2);
+    }
+}
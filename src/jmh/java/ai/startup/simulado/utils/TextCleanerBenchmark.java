@@ -0,0 +1,110 @@
+package ai.startup.simulado.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TextCleaner com os textos reais dos simulados do seed_data (enunciados, opções, hints, soluções).
+ * Uma operação = um texto/uma questão; o índice gira pelo corpus inteiro.
+ * {@code cleaner}: {@code original} = {@link TextCleanerOriginal} (referência de antes das regex
+ * pré-compiladas), {@code atual} = TextCleaner sem cache, {@code cache} = TextCleaner com o cache
+ * ligado (como em produção; mede o caminho de acerto).
+ * Textos em que o cleaner lança exceção (replacement com '$' ou '\' sem escape, igual no original)
+ * ficam de fora: a exceção derrubaria a iteração.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TextCleanerBenchmark {
+
+    static final Path SEED_DATA = Paths.get("src/main/resources/seed_data");
+
+    @Param({"original", "atual", "cache"})
+    public String cleaner;
+
+    private boolean original;
+
+    private String[] textos;
+    private List<Map<String, String>> opcoes;
+    private List<List<String>> solucoes;
+    private int i, j, k;
+
+    @Setup
+    public void carregar() throws IOException {
+        original = "original".equals(cleaner);
+        if ("cache".equals(cleaner)) TextCleaner.habilitarCache(32L << 20);
+
+        List<String> t = new ArrayList<>();
+        opcoes = new ArrayList<>();
+        solucoes = new ArrayList<>();
+        ObjectMapper om = new ObjectMapper();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(SEED_DATA, "*.json")) {
+            for (Path p : ds) {
+                JsonNode exame = om.readTree(p.toFile());
+                for (String modulo : List.of("module_1", "module_2_easy", "module_2_hard", "questions")) {
+                    for (JsonNode q : exame.path(modulo)) {
+                        for (String campo : List.of("question", "hint_english", "hint_portugues")) {
+                            if (q.hasNonNull(campo) && limpavel(q.get(campo).asText())) t.add(q.get(campo).asText());
+                        }
+                        if (q.path("options").isObject()) {
+                            Map<String, String> o = new LinkedHashMap<>();
+                            q.get("options").fields().forEachRemaining(e -> o.put(e.getKey(), e.getValue().asText()));
+                            if (o.values().stream().allMatch(TextCleanerBenchmark::limpavel)) opcoes.add(o);
+                        }
+                        if (q.path("solution_english").isArray()) {
+                            List<String> s = new ArrayList<>();
+                            q.get("solution_english").forEach(n -> s.add(n.asText()));
+                            if (s.stream().allMatch(TextCleanerBenchmark::limpavel)) solucoes.add(s);
+                        }
+                    }
+                }
+            }
+        }
+        textos = t.toArray(String[]::new);
+    }
+
+    @Benchmark
+    public String cleanText() {
+        if (i == textos.length) i = 0;
+        String texto = textos[i++];
+        return original ? TextCleanerOriginal.cleanText(texto) : TextCleaner.cleanText(texto);
+    }
+
+    @Benchmark
+    public Map<String, String> cleanOptions() {
+        if (j == opcoes.size()) j = 0;
+        Map<String, String> o = opcoes.get(j++);
+        return original ? TextCleanerOriginal.cleanOptions(o) : TextCleaner.cleanOptions(o);
+    }
+
+    @Benchmark
+    public List<String> cleanStringList() {
+        if (k == solucoes.size()) k = 0;
+        List<String> s = solucoes.get(k++);
+        return original ? TextCleanerOriginal.cleanStringList(s) : TextCleaner.cleanStringList(s);
+    }
+
+    private static boolean limpavel(String texto) {
+        try {
+            TextCleanerOriginal.cleanText(texto);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ai.startup.simulado.adaptativo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import lombok.Data;
+
+/**
+ * Geração do pool de módulos do usuário (coleção modulos_pool_geracoes).
+ * Incrementada a cada invalidação; um módulo só entra no pool se foi gerado
+ * na geração atual.
+ */
+@Data
+@Document(collection = "modulos_pool_geracoes")
+public class GeracaoPool {
+
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    @Field("user_id")
+    private String userId;
+
+    private long geracao;
+}
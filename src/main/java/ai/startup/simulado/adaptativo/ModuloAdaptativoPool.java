@@ -0,0 +1,209 @@
+package ai.startup.simulado.adaptativo;
+
+import ai.startup.simulado.client.ModeloClient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Buffer por usuário de módulos adaptativos pré-gerados (coleção modulos_pre_gerados).
+ * O início do adaptativo vira uma leitura local; a geração (que pode levar minutos)
+ * acontece em background depois de cada finalize (recálculo do perfil, ver {@link #invalidar}).
+ * Retirar não reabastece: num miss o início já gera na hora, e depois de um hit o próximo
+ * adaptativo só começa após o finalize, que invalida o pool de qualquer forma.
+ * Módulos gerados com um perfil antigo são descartados quando o perfil muda: cada invalidação
+ * incrementa a geração do pool do usuário ({@link GeracaoPool}) e só entra no pool o módulo
+ * cuja geração ainda é a atual depois do insert.
+ */
+@Slf4j
+@Component
+public class ModuloAdaptativoPool {
+
+    private final MongoTemplate mongo;
+    private final ModeloClient modeloClient;
+    private final boolean habilitado;
+    private final int profundidade;
+    private final Duration maxIdade;
+    private final ExecutorService executor;
+    private final Set<String> reabastecendo = ConcurrentHashMap.newKeySet();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter descartados;
+
+    public ModuloAdaptativoPool(MongoTemplate mongo,
+                                ModeloClient modeloClient,
+                                MeterRegistry meterRegistry,
+                                @Value("${modelo.pool.habilitado:true}") boolean habilitado,
+                                @Value("${modelo.pool.profundidade:1}") int profundidade,
+                                @Value("${modelo.pool.max-idade-horas:24}") long maxIdadeHoras,
+                                @Value("${modelo.pool.threads:2}") int threads,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.mongo = mongo;
+        this.modeloClient = modeloClient;
+        this.habilitado = habilitado;
+        this.profundidade = profundidade;
+        this.maxIdade = Duration.ofHours(maxIdadeHoras);
+        // threads limita quantas gerações rodam ao mesmo tempo (carga no serviço de modelo)
+        this.executor = threadsVirtuais
+                ? Executors.newFixedThreadPool(threads, Thread.ofVirtual().name("modulo-pool-", 0).factory())
+                : Executors.newFixedThreadPool(threads);
+        this.hits = Counter.builder("modelo.pool.hits").description("Inícios adaptativos servidos pelo pool").register(meterRegistry);
+        this.misses = Counter.builder("modelo.pool.misses").description("Inícios adaptativos que precisaram gerar na hora").register(meterRegistry);
+        this.descartados = Counter.builder("modelo.pool.descartados").description("Módulos descartados por perfil alterado").register(meterRegistry);
+    }
+
+    /**
+     * Retira o módulo mais antigo ainda válido do usuário.
+     * @return o módulo, ou null se o pool estiver vazio (quem chamou gera na hora)
+     */
+    public ModuloPreGerado retirar(String userId) {
+        if (!habilitado) return null;
+
+        Query query = Query.query(where("user_id").is(userId)
+                        .and("geracao").is(geracao(userId))
+                        .and("criado_em").gt(LocalDateTime.now().minus(maxIdade)))
+                .with(Sort.by(Sort.Direction.ASC, "criado_em"));
+        ModuloPreGerado pronto = mongo.findAndRemove(query, ModuloPreGerado.class);
+
+        if (pronto == null) {
+            misses.increment();
+            log.info("[ModuloPool] Miss para userId {}", userId);
+        } else {
+            hits.increment();
+            log.info("[ModuloPool] Hit para userId {} (gerado em {})", userId, pronto.getCriadoEm());
+        }
+        return pronto;
+    }
+
+    /**
+     * Devolve um módulo retirado cujo início falhou (o usuário não chegou a vê-lo).
+     * Volta com o mesmo criado_em, na frente da fila; se o perfil mudou nesse meio tempo, é descartado.
+     */
+    public void devolver(ModuloPreGerado modulo) {
+        if (!habilitado || modulo == null) return;
+
+        if (inserirNaGeracao(modulo)) {
+            log.info("[ModuloPool] Módulo devolvido ao pool para userId {} (início falhou)", modulo.getUserId());
+        } else {
+            log.info("[ModuloPool] Perfil de {} mudou, módulo devolvido foi descartado", modulo.getUserId());
+        }
+    }
+
+    /** Perfil do usuário mudou: descarta os módulos gerados com o perfil antigo e gera novos. */
+    public void invalidar(String userId) {
+        if (!habilitado) return;
+
+        // antes do remove: uma geração em andamento vê a geração nova e descarta o que gerou
+        avancarGeracao(userId);
+        long removidos = mongo.remove(Query.query(where("user_id").is(userId)), ModuloPreGerado.class).getDeletedCount();
+        if (removidos > 0) {
+            descartados.increment(removidos);
+            log.info("[ModuloPool] {} módulo(s) descartado(s) para userId {} (perfil alterado)", removidos, userId);
+        }
+        reabastecer(userId);
+    }
+
+    /** Completa o buffer do usuário até a profundidade configurada, em background. */
+    public void reabastecer(String userId) {
+        if (!habilitado || !reabastecendo.add(userId)) return;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    gerarAteCompletar(userId);
+                } catch (Exception e) {
+                    log.warn("[ModuloPool] Falha ao pré-gerar módulo para userId {}: {}", userId, e.getMessage());
+                } finally {
+                    reabastecendo.remove(userId);
+                }
+            });
+        } catch (RuntimeException e) {
+            reabastecendo.remove(userId); // executor encerrando
+        }
+    }
+
+    private void gerarAteCompletar(String userId) {
+        // limite de gerações por rodada (perfil pode mudar no meio e invalidar o que foi gerado)
+        for (int i = 0; i < profundidade + 2; i++) {
+            long geracao = geracao(userId);
+            long prontos = mongo.count(Query.query(where("user_id").is(userId)
+                    .and("geracao").is(geracao)
+                    .and("criado_em").gt(LocalDateTime.now().minus(maxIdade))), ModuloPreGerado.class);
+            if (prontos >= profundidade) return;
+
+            Map<String, Object> modulo = modeloClient.gerarModuloAdaptativo(userId);
+            if (modulo == null) return;
+
+            ModuloPreGerado doc = new ModuloPreGerado();
+            doc.setUserId(userId);
+            doc.setModulo(modulo);
+            doc.setGeracao(geracao);
+            doc.setCriadoEm(LocalDateTime.now());
+            if (!inserirNaGeracao(doc)) {
+                log.info("[ModuloPool] Perfil de {} mudou durante a geração, descartando módulo", userId);
+                continue;
+            }
+            log.info("[ModuloPool] Módulo pré-gerado para userId {} ({} de {})", userId, prontos + 1, profundidade);
+        }
+    }
+
+    /**
+     * Insere e confere a geração depois: ou o remove do {@link #invalidar} já vê o documento,
+     * ou a conferência vê a geração nova e retira o módulo.
+     * @return false se o módulo era de uma geração antiga (descartado)
+     */
+    private boolean inserirNaGeracao(ModuloPreGerado doc) {
+        if (geracao(doc.getUserId()) != doc.getGeracao()) {
+            descartados.increment();
+            return false;
+        }
+        mongo.insert(doc);
+        if (geracao(doc.getUserId()) != doc.getGeracao()) {
+            mongo.remove(Query.query(where("_id").is(doc.getId())), ModuloPreGerado.class);
+            descartados.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private long geracao(String userId) {
+        GeracaoPool g = mongo.findOne(Query.query(where("user_id").is(userId)), GeracaoPool.class);
+        return g == null ? 0L : g.getGeracao();
+    }
+
+    private void avancarGeracao(String userId) {
+        Query porUsuario = Query.query(where("user_id").is(userId));
+        Update inc = new Update().inc("geracao", 1L);
+        try {
+            mongo.upsert(porUsuario, inc, GeracaoPool.class);
+        } catch (DuplicateKeyException e) {
+            // outra invalidação do mesmo usuário criou o documento ao mesmo tempo
+            mongo.updateFirst(porUsuario, inc, GeracaoPool.class);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+}
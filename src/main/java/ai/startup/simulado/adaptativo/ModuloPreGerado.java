@@ -0,0 +1,34 @@
+package ai.startup.simulado.adaptativo;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Módulo adaptativo já gerado pelo serviço de modelo, aguardando o próximo
+ * início de simulado adaptativo do usuário.
+ */
+@Data
+@Document(collection = "modulos_pre_gerados")
+@CompoundIndex(name = "usuario_criado_idx", def = "{'user_id': 1, 'criado_em': 1}")
+public class ModuloPreGerado {
+
+    @Id
+    private String id;
+
+    @Field("user_id")
+    private String userId;
+
+    // resposta do serviço de modelo (mesmo formato de gerarModuloAdaptativo)
+    private Map<String, Object> modulo;
+
+    // geração do pool (GeracaoPool) em que o módulo foi gerado
+    private long geracao;
+
+    @Field("criado_em")
+    private LocalDateTime criadoEm;
+}
@@ -8,6 +8,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Map;
 
 @Service
 public class JwtService {
@@ -25,4 +28,16 @@ public class JwtService {
         return Jwts.parserBuilder().setSigningKey(key).build()
                 .parseClaimsJws(token).getBody();
     }
+
+    /** Emite um token assinado com o mesmo segredo (credencial de serviço, ver {@link ServicoToken}). */
+    public String emitir(String sujeito, Map<String, Object> claims, Duration validade) {
+        Date agora = new Date();
+        return Jwts.builder()
+                .setSubject(sujeito)
+                .addClaims(claims)
+                .setIssuedAt(agora)
+                .setExpiration(new Date(agora.getTime() + validade.toMillis()))
+                .signWith(key)
+                .compact();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package ai.startup.simulado.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Credencial do próprio serviço para o trabalho feito fora da requisição
+ * (recálculo de perfil na fila, liquidação de wins): token de vida curta assinado com
+ * {@code jwt.secret}, reemitido perto de expirar. O token do usuário nunca é persistido.
+ * Claims em {@code servico.jwt.*} (a permissão precisa ser aceita pelas APIs de destino).
+ */
+@Component
+public class ServicoToken {
+
+    private final JwtService jwtService;
+    private final String sujeito;
+    private final String permissao;
+    private final Duration validade;
+
+    private volatile Emitido atual;
+
+    private record Emitido(String bearer, Instant renovarEm) {}
+
+    public ServicoToken(JwtService jwtService,
+                        @Value("${servico.jwt.sujeito:simulado-service}") String sujeito,
+                        @Value("${servico.jwt.permissao:SERVICE}") String permissao,
+                        @Value("${servico.jwt.validade-segundos:300}") long validadeSegundos) {
+        this.jwtService = jwtService;
+        this.sujeito = sujeito;
+        this.permissao = permissao;
+        this.validade = Duration.ofSeconds(validadeSegundos);
+    }
+
+    /** Header Authorization ("Bearer ...") para chamadas do serviço. */
+    public String bearer() {
+        Emitido e = atual;
+        if (e == null || Instant.now().isAfter(e.renovarEm())) {
+            String token = jwtService.emitir(sujeito, Map.of("email", sujeito, "permissao", permissao), validade);
+            // renova com 1/5 da validade de folga para não mandar um token prestes a expirar
+            e = new Emitido("Bearer " + token, Instant.now().plus(validade.multipliedBy(4).dividedBy(5)));
+            atual = e;
+        }
+        return e.bearer();
+    }
+}
@@ -1,6 +1,9 @@
 package ai.startup.simulado.client;
 
+import ai.startup.simulado.http.HttpClientConfig;
+
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -19,7 +22,7 @@ public class ModeloClient {
     private final String adaptativoPath;
     private final String originalPath;
 
-    public ModeloClient(RestTemplate rt,
+    public ModeloClient(@Qualifier(HttpClientConfig.MODELO) RestTemplate rt,
                         @Value("${api.modelo.base}") String base,
                         @Value("${api.modelo.adaptativo-path:/generateModule}") String adaptativoPath,
                         @Value("${api.modelo.original-path:/generateFullExam}") String originalPath) {
@@ -1,5 +1,8 @@
 package ai.startup.simulado.custompractice;
 
+import ai.startup.simulado.http.HttpClientConfig;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
@@ -9,7 +12,6 @@ import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
@@ -22,10 +24,13 @@ import java.util.Map;
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class CustomPracticeClient {
 
     private final RestTemplate restTemplate;
+
+    public CustomPracticeClient(@Qualifier(HttpClientConfig.CUSTOM_PRACTICE) RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
     
     @Value("${api.modelo.base}")
     private String modeloBase;
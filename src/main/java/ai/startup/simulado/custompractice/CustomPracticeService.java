@@ -1,8 +1,11 @@
 package ai.startup.simulado.custompractice;
 
+import ai.startup.simulado.http.CircuitBreaker;
 import ai.startup.simulado.simulado.*;
 import ai.startup.simulado.usuario.*;
 import ai.startup.simulado.questaosimulado.*;
+import ai.startup.simulado.wins.WinsLedger;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -12,13 +15,17 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
  * Service responsável pela lógica de criação de Custom Practice.
  * Orquestra a comunicação entre os diferentes microserviços para:
  * 1. Validar saldo de wins do usuário
- * 2. Debitar wins
+ * 2. Reservar wins (ledger local, confirmado só no fim)
  * 3. Transformar seleções do MindMap em plan items
  * 4. Chamar approva-descartes para gerar questões
  * 5. Salvar simulado e questões no banco
@@ -32,11 +39,24 @@ public class CustomPracticeService {
     private final SimuladoRepository simuladoRepository;
     private final UsuarioClient usuarioClient;
     private final QuestaoClient questaoClient;
+    private final CircuitBreaker modeloCircuitBreaker;
+    private final WinsLedger winsLedger;
 
     private static final int WINS_POR_QUESTAO = 2;
     private static final int MIN_QUESTOES = 1;  // Mínimo de 1 questão
     private static final int MAX_QUESTOES_POR_STRUCTURE = 5;  // Máximo de 5 por structure
 
+    // limpeza das questões geradas (CPU: regex do TextCleaner), uma thread por núcleo
+    private final ExecutorService limpezaExecutor = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        Thread.ofPlatform().name("custom-limpeza-", 0).daemon().factory()
+    );
+
+    @PreDestroy
+    public void encerrar() {
+        limpezaExecutor.shutdown();
+    }
+
     /**
      * Cria um Custom Practice completo baseado nas seleções do usuário.
      * 
@@ -60,6 +80,7 @@ public class CustomPracticeService {
         validarRequest(request);
 
         // 2. Buscar dados do usuário
+        LocalDateTime saldoLidoEm = LocalDateTime.now();
         UsuarioDTO usuario = usuarioClient.buscarPorId(
             request.getUsuarioId(), 
             authorizationHeader
@@ -68,45 +89,30 @@ public class CustomPracticeService {
         log.info("[CUSTOM] Usuário encontrado: {} (wins atuais: {})", 
             usuario.email(), usuario.wins());
 
-        // 3. Calcular custo e validar saldo
+        // 3. Calcular custo
         int custoTotal = request.getTotalQuestions() * WINS_POR_QUESTAO;
-        
-        if (usuario.wins() < custoTotal) {
+        long saldo = usuario.wins() != null ? usuario.wins() : 0L;
+
+        // 4. Verificar se não há simulado em aberto
+        verificarSimuladoEmAberto(request.getUsuarioId());
+
+        // Serviço de geração fora (circuito aberto): 503 antes de reservar
+        modeloCircuitBreaker.verificar();
+
+        // 5. Reservar wins (update atômico no ledger local; valida o saldo)
+        WinsLedger.Reserva reserva = winsLedger.reservar(
+            request.getUsuarioId(), saldo, saldoLidoEm, custoTotal, authorizationHeader);
+        if (reserva == null) {
             log.error("[CUSTOM] ❌ Saldo insuficiente. Necessário: {}, Disponível: {}", 
-                custoTotal, usuario.wins());
+                custoTotal, saldo);
             throw new ResponseStatusException(
                 HttpStatus.PAYMENT_REQUIRED,
                 String.format("Saldo insuficiente. Necessário: %d wins, Disponível: %d wins",
-                    custoTotal, usuario.wins())
+                    custoTotal, saldo)
             );
         }
-
-        // 4. Verificar se não há simulado em aberto
-        verificarSimuladoEmAberto(request.getUsuarioId());
-
-        // 5. Debitar wins do usuário
-        long novoSaldo = usuario.wins() - custoTotal;
-        UsuarioUpdateDTO updateWins = new UsuarioUpdateDTO(
-            null, // nome
-            null, // sobrenome
-            null, // telefone
-            null, // nascimento
-            null, // email
-            null, // cpf
-            null, // senha
-            novoSaldo, // wins
-            null, // streaks
-            null, // xp
-            null  // permissao
-        );
-        usuarioClient.atualizar(
-            authorizationHeader,
-            request.getUsuarioId(), 
-            updateWins
-        );
         
-        log.info("[CUSTOM] ✅ Wins debitados: {} → {} (-{})", 
-            usuario.wins(), novoSaldo, custoTotal);
+        log.info("[CUSTOM] ✅ Wins reservados: {}", custoTotal);
 
         try {
             // 6. Transformar selections em plan items
@@ -182,7 +188,10 @@ public class CustomPracticeService {
                 log.info("[CUSTOM]   - Valor de 'solution_portugues': {}", primeiraQuestao.get("solution_portugues"));
             }
 
-            // 11. Retornar simulado com questões do banco (não as geradas diretamente)
+            // 11. Tudo criado: a reserva vira débito
+            winsLedger.confirmar(reserva);
+
+            // 12. Retornar simulado com questões do banco (não as geradas diretamente)
             SimuladoDTO simuladoDTO = toDTO(simuladoSalvo);
             SimuladoComQuestoesDTO resultado = new SimuladoComQuestoesDTO(simuladoDTO, questoesSalvas);
 
@@ -190,17 +199,17 @@ public class CustomPracticeService {
             return resultado;
             
         } catch (ResponseStatusException e) {
-            // Se já é uma ResponseStatusException, apenas reverte o débito e re-lança
+            // Se já é uma ResponseStatusException, apenas libera a reserva e re-lança
             log.error("[CUSTOM] ❌ Erro durante criação do custom practice: {}", e.getReason());
-            log.error("[CUSTOM] Revertendo débito de wins...");
-            reverterDebito(request.getUsuarioId(), custoTotal, authorizationHeader);
+            log.error("[CUSTOM] Liberando reserva de wins...");
+            reverterDebito(reserva);
             throw e;
         } catch (Exception e) {
             log.error("[CUSTOM] ❌ Erro durante criação do custom practice: {}", e.getMessage(), e);
-            log.error("[CUSTOM] Revertendo débito de wins...");
+            log.error("[CUSTOM] Liberando reserva de wins...");
             
-            // Reverter débito de wins em caso de erro
-            reverterDebito(request.getUsuarioId(), custoTotal, authorizationHeader);
+            // Liberar a reserva de wins em caso de erro
+            reverterDebito(reserva);
             
             throw new ResponseStatusException(
                 HttpStatus.INTERNAL_SERVER_ERROR,
@@ -264,21 +273,16 @@ public class CustomPracticeService {
     }
 
     /**
-     * Reverte o débito de wins em caso de erro.
+     * Libera a reserva de wins em caso de erro (update atômico no ledger, sem ler o saldo).
      */
-    private void reverterDebito(String usuarioId, int valor, String authHeader) {
+    private void reverterDebito(WinsLedger.Reserva reserva) {
         try {
-            UsuarioDTO user = usuarioClient.buscarPorId(usuarioId, authHeader);
-            long novoSaldo = user.wins() + valor;
-            UsuarioUpdateDTO update = new UsuarioUpdateDTO(
-                null, null, null, null, null, null, null,
-                novoSaldo, null, null, null
-            );
-            usuarioClient.atualizar(authHeader, usuarioId, update);
-            log.info("[CUSTOM] ✅ Wins devolvidos ao usuário: +{}", valor);
+            winsLedger.liberar(reserva);
+            log.info("[CUSTOM] ✅ Wins devolvidos ao usuário: +{}", reserva.valor());
         } catch (Exception e) {
-            log.error("[CUSTOM] ❌ ERRO CRÍTICO: Não foi possível reverter débito de {} wins para usuário {}", 
-                valor, usuarioId);
+            // a reserva expira sozinha e volta para o saldo
+            log.error("[CUSTOM] ❌ Não foi possível liberar a reserva de {} wins do usuário {}", 
+                reserva.valor(), reserva.userId());
             log.error("[CUSTOM] Erro: {}", e.getMessage());
         }
     }
@@ -415,106 +419,140 @@ public class CustomPracticeService {
 
     /**
      * Monta os DTOs de questão para salvar no serviço de questões.
-     * QuestoesCreateItemDTO é um record com muitos campos.
+     * Cada questão é limpa/mapeada em paralelo no pool de limpeza; a lista sai na mesma ordem
+     * das questões geradas.
      */
     private List<QuestoesCreateItemDTO> montarQuestoesDTO(
             List<Map<String, Object>> questoesGeradas,
             String simuladoId,
             String usuarioId
     ) {
-        final List<Map<String, Object>> questoesGeradasFinal = questoesGeradas;
-        return questoesGeradas.stream().map(q -> {
-            // Extrair valores do Map
-            String topic = (String) q.get("topic");
-            String subskill = (String) q.get("subskill");
-            String difficulty = (String) q.get("difficulty");
-            String question = ai.startup.simulado.utils.TextCleaner.cleanText((String) q.get("question"));
-            @SuppressWarnings("unchecked")
-            Map<String, String> options = ai.startup.simulado.utils.TextCleaner.cleanOptions((Map<String, String>) q.get("options"));
-            Object correctOption = q.get("correct_option");
-            String structure = (String) q.get("structure");
-            String format = (String) q.get("format");
-            String source = (String) q.get("source");
-            String exampleId = (String) q.get("example_id");
-            
-            // Log detalhado para debug (apenas primeira questão)
-            boolean isFirstQuestion = questoesGeradasFinal != null && !questoesGeradasFinal.isEmpty() && questoesGeradasFinal.get(0) == q;
-            if (isFirstQuestion) {
-                int solEnSize = (q.get("solution_english") instanceof List<?> list) ? list.size() : 0;
-                int solPtSize = (q.get("solution_portugues") instanceof List<?> list) ? list.size() : 0;
-                log.info("[CUSTOM] 🔍 DEBUG montarQuestoesDTO - Primeira questão: {}", q.get("id"));
-                log.info("[CUSTOM]   - hint_english: {}", q.get("hint_english"));
-                log.info("[CUSTOM]   - hint_portugues: {}", q.get("hint_portugues"));
-                log.info("[CUSTOM]   - solution_english size: {}", solEnSize);
-                log.info("[CUSTOM]   - solution_portugues size: {}", solPtSize);
-            }
-            
-            @SuppressWarnings("unchecked")
-            List<String> solutionEnglish = (List<String>) q.get("solution_english");
-            @SuppressWarnings("unchecked")
-            List<String> solutionPortugues = (List<String>) q.get("solution_portugues");
-            solutionEnglish = solutionEnglish != null
-                    ? ai.startup.simulado.utils.TextCleaner.cleanStringList(solutionEnglish)
-                    : new ArrayList<>();
-            solutionPortugues = solutionPortugues != null
-                    ? ai.startup.simulado.utils.TextCleaner.cleanStringList(solutionPortugues)
-                    : new ArrayList<>();
-
-            String hintEnglish = ai.startup.simulado.utils.TextCleaner.cleanText((String) q.get("hint_english"));
-            String hintPortugues = ai.startup.simulado.utils.TextCleaner.cleanText((String) q.get("hint_portugues"));
-            
-            // Log do resultado final (apenas primeira questão)
-            if (isFirstQuestion) {
-                log.info("[CUSTOM] 🔍 DEBUG montarQuestoesDTO - Após mapeamento:");
-                log.info("[CUSTOM]   - hintEnglish: {}", hintEnglish);
-                log.info("[CUSTOM]   - hintPortugues: {}", hintPortugues);
-                log.info("[CUSTOM]   - solutionEnglish size: {}", solutionEnglish != null ? solutionEnglish.size() : 0);
-                log.info("[CUSTOM]   - solutionPortugues size: {}", solutionPortugues != null ? solutionPortugues.size() : 0);
+        if (questoesGeradas.size() <= 1) {
+            return questoesGeradas.stream()
+                .map(q -> montarQuestaoDTO(q, simuladoId, usuarioId, true))
+                .collect(Collectors.toList());
+        }
+
+        List<CompletableFuture<QuestoesCreateItemDTO>> emAndamento = new ArrayList<>(questoesGeradas.size());
+        for (int i = 0; i < questoesGeradas.size(); i++) {
+            Map<String, Object> q = questoesGeradas.get(i);
+            boolean isFirstQuestion = i == 0;
+            emAndamento.add(CompletableFuture.supplyAsync(
+                () -> montarQuestaoDTO(q, simuladoId, usuarioId, isFirstQuestion), limpezaExecutor));
+        }
+
+        List<QuestoesCreateItemDTO> questoes = new ArrayList<>(emAndamento.size());
+        try {
+            for (CompletableFuture<QuestoesCreateItemDTO> f : emAndamento) {
+                questoes.add(f.join());
             }
-            
-            @SuppressWarnings("unchecked")
-            List<String> targetMistakes = (List<String>) q.get("target_mistakes");
-            @SuppressWarnings("unchecked")
-            Map<String, Object> figure = (Map<String, Object>) q.get("figure");
-            
-            // Extrair ordem (pode vir como Integer ou Number)
-            Integer ordem = null;
-            Object ordemObj = q.get("ordem");
-            if (ordemObj != null) {
-                if (ordemObj instanceof Integer) {
-                    ordem = (Integer) ordemObj;
-                } else if (ordemObj instanceof Number) {
-                    ordem = ((Number) ordemObj).intValue();
-                }
+        } catch (CompletionException e) {
+            emAndamento.forEach(f -> f.cancel(false));
+            if (e.getCause() instanceof RuntimeException r) throw r;
+            throw e;
+        }
+        return questoes;
+    }
+
+    /**
+     * Limpa e mapeia uma questão gerada.
+     * QuestoesCreateItemDTO é um record com muitos campos.
+     */
+    private QuestoesCreateItemDTO montarQuestaoDTO(
+            Map<String, Object> q,
+            String simuladoId,
+            String usuarioId,
+            boolean isFirstQuestion
+    ) {
+        // Extrair valores do Map
+        String topic = (String) q.get("topic");
+        String subskill = (String) q.get("subskill");
+        String difficulty = (String) q.get("difficulty");
+        String question = ai.startup.simulado.utils.TextCleaner.cleanText((String) q.get("question"));
+        @SuppressWarnings("unchecked")
+        Map<String, String> options = ai.startup.simulado.utils.TextCleaner.cleanOptions((Map<String, String>) q.get("options"));
+        Object correctOption = q.get("correct_option");
+        String structure = (String) q.get("structure");
+        String format = (String) q.get("format");
+        String source = (String) q.get("source");
+        String exampleId = (String) q.get("example_id");
+        
+        // Log detalhado para debug (apenas primeira questão)
+        if (isFirstQuestion) {
+            int solEnSize = (q.get("solution_english") instanceof List<?> list) ? list.size() : 0;
+            int solPtSize = (q.get("solution_portugues") instanceof List<?> list) ? list.size() : 0;
+            log.info("[CUSTOM] 🔍 DEBUG montarQuestoesDTO - Primeira questão: {}", q.get("id"));
+            log.info("[CUSTOM]   - hint_english: {}", q.get("hint_english"));
+            log.info("[CUSTOM]   - hint_portugues: {}", q.get("hint_portugues"));
+            log.info("[CUSTOM]   - solution_english size: {}", solEnSize);
+            log.info("[CUSTOM]   - solution_portugues size: {}", solPtSize);
+        }
+        
+        @SuppressWarnings("unchecked")
+        List<String> solutionEnglish = (List<String>) q.get("solution_english");
+        @SuppressWarnings("unchecked")
+        List<String> solutionPortugues = (List<String>) q.get("solution_portugues");
+        solutionEnglish = solutionEnglish != null
+                ? ai.startup.simulado.utils.TextCleaner.cleanStringList(solutionEnglish)
+                : new ArrayList<>();
+        solutionPortugues = solutionPortugues != null
+                ? ai.startup.simulado.utils.TextCleaner.cleanStringList(solutionPortugues)
+                : new ArrayList<>();
+
+        String hintEnglish = ai.startup.simulado.utils.TextCleaner.cleanText((String) q.get("hint_english"));
+        String hintPortugues = ai.startup.simulado.utils.TextCleaner.cleanText((String) q.get("hint_portugues"));
+        
+        // Log do resultado final (apenas primeira questão)
+        if (isFirstQuestion) {
+            log.info("[CUSTOM] 🔍 DEBUG montarQuestoesDTO - Após mapeamento:");
+            log.info("[CUSTOM]   - hintEnglish: {}", hintEnglish);
+            log.info("[CUSTOM]   - hintPortugues: {}", hintPortugues);
+            log.info("[CUSTOM]   - solutionEnglish size: {}", solutionEnglish != null ? solutionEnglish.size() : 0);
+            log.info("[CUSTOM]   - solutionPortugues size: {}", solutionPortugues != null ? solutionPortugues.size() : 0);
+        }
+        
+        @SuppressWarnings("unchecked")
+        List<String> targetMistakes = (List<String>) q.get("target_mistakes");
+        @SuppressWarnings("unchecked")
+        Map<String, Object> figure = (Map<String, Object>) q.get("figure");
+        
+        // Extrair ordem (pode vir como Integer ou Number)
+        Integer ordem = null;
+        Object ordemObj = q.get("ordem");
+        if (ordemObj != null) {
+            if (ordemObj instanceof Integer) {
+                ordem = (Integer) ordemObj;
+            } else if (ordemObj instanceof Number) {
+                ordem = ((Number) ordemObj).intValue();
             }
-            
-            // Criar record usando o construtor
-            return new QuestoesCreateItemDTO(
-                simuladoId,        // id_formulario
-                usuarioId,         // id_usuario
-                topic,             // topic
-                subskill,          // subskill
-                difficulty,        // difficulty
-                question,          // question
-                options,           // options
-                correctOption,     // correct_option
-                structure,         // structure
-                format,            // format
-                targetMistakes,    // target_mistakes
-                source,            // source
-                exampleId,         // example_id
-                solutionEnglish,   // solution_english
-                solutionPortugues, // solution_portugues
-                hintEnglish,       // hint_english
-                hintPortugues,     // hint_portugues
-                figure,            // figure
-                null,              // alternativa_marcada
-                false,             // dica
-                false,             // solucao
-                Integer.valueOf(1), // modulo (1 para custom practice)
-                ordem              // ordem
-            );
-        }).collect(Collectors.toList());
+        }
+        
+        // Criar record usando o construtor
+        return new QuestoesCreateItemDTO(
+            simuladoId,        // id_formulario
+            usuarioId,         // id_usuario
+            topic,             // topic
+            subskill,          // subskill
+            difficulty,        // difficulty
+            question,          // question
+            options,           // options
+            correctOption,     // correct_option
+            structure,         // structure
+            format,            // format
+            targetMistakes,    // target_mistakes
+            source,            // source
+            exampleId,         // example_id
+            solutionEnglish,   // solution_english
+            solutionPortugues, // solution_portugues
+            hintEnglish,       // hint_english
+            hintPortugues,     // hint_portugues
+            figure,            // figure
+            null,              // alternativa_marcada
+            false,             // dica
+            false,             // solucao
+            Integer.valueOf(1), // modulo (1 para custom practice)
+            ordem              // ordem
+        );
     }
 
     /**
@@ -8,6 +8,9 @@ import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.server.ResponseStatusException;
 
+import ai.startup.simulado.http.BulkheadCheioException;
+import ai.startup.simulado.http.CircuitoAbertoException;
+
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.HashMap;
@@ -26,6 +29,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<Map<String, Object>> handleResponseStatusException(ResponseStatusException ex) {
+        ResponseStatusException recusa = recusaNaCausa(ex);
+        if (recusa != null) return sobrecarga(recusa);
+
         log.error("ResponseStatusException: {} - {}", ex.getStatusCode(), ex.getReason(), ex);
         
         Map<String, Object> body = new HashMap<>();
@@ -89,6 +95,9 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
+        ResponseStatusException recusa = recusaNaCausa(ex);
+        if (recusa != null) return sobrecarga(recusa);
+
         log.error("Erro não tratado: {}", ex.getMessage(), ex);
         
         Map<String, Object> body = new HashMap<>();
@@ -98,5 +107,27 @@ public class GlobalExceptionHandler {
         
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body);
     }
-}
 
+    /**
+     * Bulkhead cheio ou circuito aberto, mesmo que embrulhado por um client/service:
+     * 503 (falha rápida, sem log de stack).
+     */
+    private ResponseEntity<Map<String, Object>> sobrecarga(ResponseStatusException ex) {
+        log.warn("Requisição recusada na hora: {}", ex.getReason());
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("error", ex.getReason());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(body);
+    }
+
+    private ResponseStatusException recusaNaCausa(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof BulkheadCheioException b) return b;
+            if (t instanceof CircuitoAbertoException c) return c;
+            if (t.getCause() == t) break;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+package ai.startup.simulado.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limita as chamadas simultâneas a uma API de destino.
+ * Até {@code maxConcorrentes} em andamento; até {@code maxFila} esperando no máximo {@code esperaMs}
+ * por uma vaga; além disso, {@link BulkheadCheioException} (503) na hora.
+ * Métricas (tag cliente): http.client.bulkhead.active / queued / saturation / rejected.
+ */
+@Slf4j
+public class Bulkhead implements ClientHttpRequestInterceptor {
+
+    private final String cliente;
+    private final int maxConcorrentes;
+    private final int maxFila;
+    private final long esperaMs;
+    private final Semaphore vagas;
+    private final AtomicInteger naFila = new AtomicInteger();
+    private final Counter rejeitadas;
+
+    public Bulkhead(String cliente, int maxConcorrentes, int maxFila, long esperaMs, MeterRegistry meterRegistry) {
+        this.cliente = cliente;
+        this.maxConcorrentes = maxConcorrentes;
+        this.maxFila = maxFila;
+        this.esperaMs = esperaMs;
+        this.vagas = new Semaphore(maxConcorrentes, true);
+
+        Gauge.builder("http.client.bulkhead.active", this, b -> b.emAndamento())
+                .description("Chamadas em andamento").tag("cliente", cliente).register(meterRegistry);
+        Gauge.builder("http.client.bulkhead.queued", naFila, AtomicInteger::get)
+                .description("Chamadas esperando vaga").tag("cliente", cliente).register(meterRegistry);
+        Gauge.builder("http.client.bulkhead.saturation", this, b -> (double) b.emAndamento() / b.maxConcorrentes)
+                .description("Fração das vagas em uso (0..1)").tag("cliente", cliente).register(meterRegistry);
+        this.rejeitadas = Counter.builder("http.client.bulkhead.rejected")
+                .description("Chamadas recusadas por falta de vaga").tag("cliente", cliente).register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        adquirir();
+        try {
+            return execution.execute(request, body);
+        } finally {
+            vagas.release();
+        }
+    }
+
+    private void adquirir() {
+        if (vagas.tryAcquire()) return;
+
+        if (naFila.incrementAndGet() > maxFila) {
+            naFila.decrementAndGet();
+            rejeitar("fila cheia");
+        }
+        try {
+            if (!vagas.tryAcquire(esperaMs, TimeUnit.MILLISECONDS)) rejeitar("sem vaga em " + esperaMs + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejeitar("interrompido");
+        } finally {
+            naFila.decrementAndGet();
+        }
+    }
+
+    private void rejeitar(String motivo) {
+        rejeitadas.increment();
+        log.warn("[Bulkhead] {} recusou chamada ({}; {} em andamento)", cliente, motivo, emAndamento());
+        throw new BulkheadCheioException(cliente);
+    }
+
+    private int emAndamento() {
+        return maxConcorrentes - vagas.availablePermits();
+    }
+}
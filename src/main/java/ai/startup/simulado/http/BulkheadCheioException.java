@@ -0,0 +1,22 @@
+package ai.startup.simulado.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Bulkhead de uma API de destino sem vaga (concorrência e fila esgotadas):
+ * a requisição falha na hora com 503 em vez de esperar pelo timeout.
+ */
+public class BulkheadCheioException extends ResponseStatusException {
+
+    private final String cliente;
+
+    public BulkheadCheioException(String cliente) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Serviço " + cliente + " sobrecarregado. Tente novamente em instantes.");
+        this.cliente = cliente;
+    }
+
+    public String getCliente() {
+        return cliente;
+    }
+}
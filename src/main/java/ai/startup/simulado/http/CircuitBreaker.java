@@ -0,0 +1,127 @@
+package ai.startup.simulado.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker de uma API de destino (interceptor do RestTemplate).
+ * - FECHADO: chamadas passam; {@code limiteFalhas} falhas seguidas (I/O ou 5xx) abrem o circuito;
+ * - ABERTO: chamadas falham na hora com {@link CircuitoAbertoException} durante {@code tempoAberto};
+ * - MEIO_ABERTO: uma única chamada de teste passa; sucesso fecha, falha reabre.
+ * Quem vai debitar wins / persistir antes da chamada usa {@link #verificar()} antes.
+ * Métricas (tag cliente): http.client.circuit.state (0 fechado, 1 meio aberto, 2 aberto), http.client.circuit.rejected.
+ */
+@Slf4j
+public class CircuitBreaker implements ClientHttpRequestInterceptor {
+
+    public enum Estado { FECHADO, MEIO_ABERTO, ABERTO }
+
+    private final String cliente;
+    private final int limiteFalhas;
+    private final long tempoAbertoMs;
+
+    private volatile Estado estado = Estado.FECHADO;
+    private volatile long abertoAte;
+    private final AtomicInteger falhasSeguidas = new AtomicInteger();
+    private final AtomicBoolean testeEmAndamento = new AtomicBoolean();
+    private final Counter rejeitadas;
+
+    public CircuitBreaker(String cliente, int limiteFalhas, Duration tempoAberto, MeterRegistry meterRegistry) {
+        this.cliente = cliente;
+        this.limiteFalhas = limiteFalhas;
+        this.tempoAbertoMs = tempoAberto.toMillis();
+
+        Gauge.builder("http.client.circuit.state", this, c -> c.getEstado().ordinal())
+                .description("Estado do circuito (0 fechado, 1 meio aberto, 2 aberto)").tag("cliente", cliente).register(meterRegistry);
+        this.rejeitadas = Counter.builder("http.client.circuit.rejected")
+                .description("Chamadas recusadas com o circuito aberto").tag("cliente", cliente).register(meterRegistry);
+    }
+
+    public String getCliente() {
+        return cliente;
+    }
+
+    /** Estado atual (ABERTO vencido já conta como MEIO_ABERTO). */
+    public Estado getEstado() {
+        Estado e = estado;
+        if (e == Estado.ABERTO && System.currentTimeMillis() >= abertoAte) return Estado.MEIO_ABERTO;
+        return e;
+    }
+
+    public int getFalhasSeguidas() {
+        return falhasSeguidas.get();
+    }
+
+    /** Falha rápida antes de efeitos colaterais (débito, persistência) se o circuito está aberto. */
+    public void verificar() {
+        if (getEstado() == Estado.ABERTO) {
+            rejeitadas.increment();
+            throw new CircuitoAbertoException(cliente);
+        }
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        boolean teste = permitir();
+        ClientHttpResponse resp;
+        try {
+            resp = execution.execute(request, body);
+        } catch (IOException e) {
+            falha(e.getMessage());
+            throw e;
+        } catch (RuntimeException e) {
+            // recusa local (ex.: bulkhead): não diz nada sobre a saúde do destino
+            if (teste) testeEmAndamento.set(false);
+            throw e;
+        }
+        if (resp.getStatusCode().is5xxServerError()) {
+            falha("HTTP " + resp.getStatusCode().value());
+        } else {
+            sucesso();
+        }
+        return resp;
+    }
+
+    /** @return true se esta chamada é o teste do MEIO_ABERTO */
+    private boolean permitir() {
+        Estado e = getEstado();
+        if (e == Estado.FECHADO) return false;
+        if (e == Estado.MEIO_ABERTO && testeEmAndamento.compareAndSet(false, true)) {
+            estado = Estado.MEIO_ABERTO;
+            log.info("[Circuito] {} meio aberto: chamada de teste liberada", cliente);
+            return true;
+        }
+        rejeitadas.increment();
+        throw new CircuitoAbertoException(cliente);
+    }
+
+    private void sucesso() {
+        falhasSeguidas.set(0);
+        if (estado != Estado.FECHADO) {
+            estado = Estado.FECHADO;
+            testeEmAndamento.set(false);
+            log.info("[Circuito] {} fechado", cliente);
+        }
+    }
+
+    private void falha(String motivo) {
+        int falhas = falhasSeguidas.incrementAndGet();
+        if (estado == Estado.MEIO_ABERTO || falhas >= limiteFalhas) {
+            abertoAte = System.currentTimeMillis() + tempoAbertoMs;
+            estado = Estado.ABERTO;
+            testeEmAndamento.set(false);
+            log.warn("[Circuito] {} aberto por {}ms após {} falha(s) seguida(s): {}", cliente, tempoAbertoMs, falhas, motivo);
+        }
+    }
+}
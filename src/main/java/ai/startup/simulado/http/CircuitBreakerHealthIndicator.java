@@ -0,0 +1,35 @@
+package ai.startup.simulado.http;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Estado dos circuit breakers em /actuator/health (componente "circuitBreaker").
+ * Circuito aberto aparece como DEGRADED: o serviço segue atendendo o resto, então não derruba o health geral.
+ */
+@Component("circuitBreaker")
+public class CircuitBreakerHealthIndicator implements HealthIndicator {
+
+    private final List<CircuitBreaker> circuitos;
+
+    public CircuitBreakerHealthIndicator(List<CircuitBreaker> circuitos) {
+        this.circuitos = circuitos;
+    }
+
+    @Override
+    public Health health() {
+        boolean algumAberto = false;
+        Health.Builder builder = Health.up();
+        for (CircuitBreaker c : circuitos) {
+            CircuitBreaker.Estado estado = c.getEstado();
+            if (estado != CircuitBreaker.Estado.FECHADO) algumAberto = true;
+            builder.withDetail(c.getCliente(), estado.name() + " (falhas seguidas: " + c.getFalhasSeguidas() + ")");
+        }
+        if (algumAberto) builder.status(new Status("DEGRADED"));
+        return builder.build();
+    }
+}
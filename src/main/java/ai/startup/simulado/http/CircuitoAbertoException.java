@@ -0,0 +1,22 @@
+package ai.startup.simulado.http;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Circuito da API de destino aberto (falhas seguidas): falha na hora com 503,
+ * sem esperar connect/read timeout.
+ */
+public class CircuitoAbertoException extends ResponseStatusException {
+
+    private final String cliente;
+
+    public CircuitoAbertoException(String cliente) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Serviço " + cliente + " indisponível no momento. Tente novamente em instantes.");
+        this.cliente = cliente;
+    }
+
+    public String getCliente() {
+        return cliente;
+    }
+}
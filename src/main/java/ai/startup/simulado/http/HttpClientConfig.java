@@ -0,0 +1,155 @@
+package ai.startup.simulado.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Um RestTemplate por API de destino, cada um com seu pool de conexões (Apache HttpClient 5, keep-alive)
+ * e seu {@link Bulkhead}.
+ * - APIs de CRUD (usuário, questões, perfil): timeouts curtos ({@code http.crud.*});
+ * - serviço de modelo e custom practice (geração leva minutos): timeouts longos ({@code http.modelo.*}).
+ * Cada destino pode sobrescrever o perfil em {@code http.<destino>.connect-timeout-ms / read-timeout-ms}.
+ * Tamanho do pool por destino em {@code http.pool.<destino>.max-conexoes};
+ * limites do bulkhead em {@code http.bulkhead.<destino>.*}.
+ * Modelo e custom practice (mesmo serviço de geração) compartilham um {@link CircuitBreaker} ({@code http.circuito.modelo.*}).
+ * Gauges: http.client.pool.leased / pending / available (tag cliente).
+ */
+@Slf4j
+@Configuration
+public class HttpClientConfig {
+
+    public static final String USUARIO = "usuarioRestTemplate";
+    public static final String QUESTAO = "questaoRestTemplate";
+    public static final String PERFIL = "perfilRestTemplate";
+    public static final String MODELO = "modeloRestTemplate";
+    public static final String CUSTOM_PRACTICE = "customPracticeRestTemplate";
+
+    private final Environment env;
+    private final MeterRegistry meterRegistry;
+    private final List<CloseableHttpClient> clientes = new CopyOnWriteArrayList<>();
+
+    public HttpClientConfig(Environment env, MeterRegistry meterRegistry) {
+        this.env = env;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean(USUARIO)
+    public RestTemplate usuarioRestTemplate(RestTemplateBuilder b) {
+        return criar(b, "usuario", "crud");
+    }
+
+    @Bean(QUESTAO)
+    public RestTemplate questaoRestTemplate(RestTemplateBuilder b) {
+        return criar(b, "questao", "crud");
+    }
+
+    @Bean(PERFIL)
+    public RestTemplate perfilRestTemplate(RestTemplateBuilder b) {
+        return criar(b, "perfil", "crud");
+    }
+
+    @Bean(MODELO)
+    public RestTemplate modeloRestTemplate(RestTemplateBuilder b, CircuitBreaker modeloCircuitBreaker) {
+        return criar(b, "modelo", "modelo", modeloCircuitBreaker);
+    }
+
+    @Bean(CUSTOM_PRACTICE)
+    public RestTemplate customPracticeRestTemplate(RestTemplateBuilder b, CircuitBreaker modeloCircuitBreaker) {
+        return criar(b, "custom-practice", "modelo", modeloCircuitBreaker);
+    }
+
+    /** Circuito do serviço de geração (modelo + custom practice). */
+    @Bean
+    public CircuitBreaker modeloCircuitBreaker() {
+        int limiteFalhas = env.getProperty("http.circuito.modelo.limite-falhas", Integer.class, 5);
+        long abertoSeg = env.getProperty("http.circuito.modelo.aberto-segundos", Long.class, 30L);
+        return new CircuitBreaker("modelo", limiteFalhas, Duration.ofSeconds(abertoSeg), meterRegistry);
+    }
+
+    private RestTemplate criar(RestTemplateBuilder b, String destino, String perfilTimeout) {
+        return criar(b, destino, perfilTimeout, null);
+    }
+
+    private RestTemplate criar(RestTemplateBuilder b, String destino, String perfilTimeout, CircuitBreaker circuito) {
+        int maxConexoes = env.getProperty("http.pool." + destino + ".max-conexoes", Integer.class, 50);
+        long connectMs = env.getProperty("http." + destino + ".connect-timeout-ms", Long.class,
+                env.getProperty("http." + perfilTimeout + ".connect-timeout-ms", Long.class, 2_000L));
+        long readMs = env.getProperty("http." + destino + ".read-timeout-ms", Long.class,
+                env.getProperty("http." + perfilTimeout + ".read-timeout-ms", Long.class, 30_000L));
+        long ttlSeg = env.getProperty("http.pool.ttl-segundos", Long.class, 300L);
+        long ociosaSeg = env.getProperty("http.pool.ociosa-segundos", Long.class, 30L);
+
+        PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConexoes)
+                .setMaxConnPerRoute(maxConexoes) // um host por destino
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readMs))
+                        .setTimeToLive(TimeValue.ofSeconds(ttlSeg))
+                        .build())
+                .build();
+
+        CloseableHttpClient cliente = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(connectMs)) // espera por conexão livre
+                        .setResponseTimeout(Timeout.ofMilliseconds(readMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(ociosaSeg))
+                .build();
+        clientes.add(cliente);
+
+        Gauge.builder("http.client.pool.leased", pool, p -> p.getTotalStats().getLeased())
+                .description("Conexões em uso").tag("cliente", destino).register(meterRegistry);
+        Gauge.builder("http.client.pool.pending", pool, p -> p.getTotalStats().getPending())
+                .description("Requisições esperando conexão").tag("cliente", destino).register(meterRegistry);
+        Gauge.builder("http.client.pool.available", pool, p -> p.getTotalStats().getAvailable())
+                .description("Conexões ociosas no pool").tag("cliente", destino).register(meterRegistry);
+
+        int maxConcorrentes = env.getProperty("http.bulkhead." + destino + ".max-concorrentes", Integer.class, maxConexoes);
+        int maxFila = env.getProperty("http.bulkhead." + destino + ".max-fila", Integer.class, maxConexoes);
+        long esperaMs = env.getProperty("http.bulkhead." + destino + ".espera-ms", Long.class, 1_000L);
+        Bulkhead bulkhead = new Bulkhead(destino, maxConcorrentes, maxFila, esperaMs, meterRegistry);
+
+        log.info("[HttpClient] {}: pool de {} conexões, connect {}ms, read {}ms, bulkhead {}+{} (espera {}ms)",
+                destino, maxConexoes, connectMs, readMs, maxConcorrentes, maxFila, esperaMs);
+
+        var factory = new HttpComponentsClientHttpRequestFactory(cliente);
+        // circuito antes do bulkhead: com o circuito aberto a chamada nem ocupa vaga
+        if (circuito != null) b = b.additionalInterceptors(circuito);
+        return b.requestFactory(() -> factory).additionalInterceptors(bulkhead).build();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        for (CloseableHttpClient c : clientes) {
+            try {
+                c.close();
+            } catch (IOException e) {
+                log.warn("[HttpClient] Falha ao fechar cliente HTTP: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package ai.startup.simulado.idempotencia;
+
+import ai.startup.simulado.usuario.UsuarioClient;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Idempotency-Key para inícios e finalize.
+ * - primeira requisição com a chave executa e guarda a resposta;
+ * - repetições depois do sucesso recebem a mesma resposta, sem refazer o trabalho;
+ * - repetições enquanto a original roda esperam por ela (polling no Mongo, vale entre instâncias);
+ * - se a original falha, o registro é apagado e a próxima repetição executa de novo.
+ * A chave vale por usuário (id da API de usuários, o JWT não traz o id): sem usuário identificado,
+ * a requisição com Idempotency-Key é recusada. Cada execução grava um dono (token aleatório) e só
+ * o dono atual conclui ou apaga o registro, mesmo que o lease tenha sido assumido por outra instância.
+ */
+@Slf4j
+@Service
+public class IdempotenciaService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private final MongoTemplate mongo;
+    private final ObjectMapper objectMapper;
+    private final UsuarioClient usuarioClient;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Duration espera;
+    private final long pollMs;
+
+    // Authorization -> id do usuário (evita um GET /users/me por requisição repetida)
+    private final Cache<String, String> usuarios;
+
+    public IdempotenciaService(MongoTemplate mongo,
+                               ObjectMapper objectMapper,
+                               UsuarioClient usuarioClient,
+                               @Value("${idempotencia.ttl-horas:24}") long ttlHoras,
+                               @Value("${idempotencia.lease-segundos:360}") long leaseSegundos,
+                               @Value("${idempotencia.espera-segundos:330}") long esperaSegundos,
+                               @Value("${idempotencia.poll-ms:250}") long pollMs,
+                               @Value("${idempotencia.usuario-cache-minutos:10}") long usuarioCacheMinutos) {
+        this.mongo = mongo;
+        this.objectMapper = objectMapper;
+        this.usuarioClient = usuarioClient;
+        this.ttl = Duration.ofHours(ttlHoras);
+        this.lease = Duration.ofSeconds(leaseSegundos);
+        this.espera = Duration.ofSeconds(esperaSegundos);
+        this.pollMs = pollMs;
+        this.usuarios = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(usuarioCacheMinutos))
+                .build();
+    }
+
+    /**
+     * Executa {@code acao} uma única vez por (operação, usuário, chave).
+     * @param operacao nome da operação (ex.: "adaptativo")
+     * @param chave valor do header Idempotency-Key (null/vazio = executa sem idempotência)
+     * @param corpo corpo da requisição (entra na impressão digital; pode ser null)
+     */
+    public <T> T executar(String operacao, String chave, HttpServletRequest req, Object corpo,
+                          Class<T> tipo, Supplier<T> acao) {
+        if (chave == null || chave.isBlank()) return acao.get();
+        if (chave.length() > 128) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, HEADER + " muito longo (máx. 128).");
+        }
+
+        String usuario = usuarioId(req);
+        String id = operacao + ":" + usuario + ":" + chave;
+        String impressao = impressao(corpo);
+        long limite = System.currentTimeMillis() + espera.toMillis();
+
+        while (true) {
+            String dono = UUID.randomUUID().toString();
+            if (reservar(id, impressao, dono)) return executarReservado(id, dono, tipo, acao);
+
+            RequisicaoIdempotente existente = mongo.findById(id, RequisicaoIdempotente.class);
+            if (existente == null) continue; // a original falhou e liberou a chave: tenta de novo
+
+            if (!impressao.equals(existente.getImpressao())) {
+                throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        HEADER + " já usado com outro corpo de requisição.");
+            }
+            if (RequisicaoIdempotente.CONCLUIDO.equals(existente.getStatus())) {
+                log.info("[Idempotencia] Reaproveitando resposta de {}", id);
+                return ler(existente.getResposta(), tipo);
+            }
+            if (assumirAbandonada(id, existente, dono)) {
+                log.warn("[Idempotencia] Execução de {} abandonada (lease vencido), executando de novo", id);
+                return executarReservado(id, dono, tipo, acao);
+            }
+            if (System.currentTimeMillis() > limite) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Requisição com este " + HEADER + " ainda em andamento.");
+            }
+            dormir();
+        }
+    }
+
+    /** Id do usuário autenticado; 401 se não houver (sem usuário a chave seria compartilhada). */
+    private String usuarioId(HttpServletRequest req) {
+        String bearer = req.getHeader("Authorization");
+        if (bearer == null || bearer.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, HEADER + " exige usuário autenticado.");
+        }
+        String id = usuarios.get(bearer, b -> usuarioClient.me(b).id());
+        if (id == null || id.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, HEADER + " exige usuário autenticado.");
+        }
+        return id;
+    }
+
+    private boolean reservar(String id, String impressao, String dono) {
+        Date agora = new Date();
+        RequisicaoIdempotente doc = new RequisicaoIdempotente();
+        doc.setId(id);
+        doc.setStatus(RequisicaoIdempotente.EM_ANDAMENTO);
+        doc.setImpressao(impressao);
+        doc.setDono(dono);
+        doc.setCriadoEm(agora);
+        doc.setLeaseAte(new Date(agora.getTime() + lease.toMillis()));
+        doc.setExpiraEm(new Date(agora.getTime() + ttl.toMillis()));
+        try {
+            mongo.insert(doc);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /** Instância que reservou caiu: quem chegar primeiro depois do lease assume. */
+    private boolean assumirAbandonada(String id, RequisicaoIdempotente existente, String dono) {
+        Date agora = new Date();
+        if (existente.getLeaseAte() == null || existente.getLeaseAte().after(agora)) return false;
+
+        Query query = Query.query(Criteria.where("_id").is(id)
+                .and("status").is(RequisicaoIdempotente.EM_ANDAMENTO)
+                .and("lease_ate").is(existente.getLeaseAte()));
+        Update update = new Update()
+                .set("lease_ate", new Date(agora.getTime() + lease.toMillis()))
+                .set("dono", dono);
+        return mongo.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true),
+                RequisicaoIdempotente.class) != null;
+    }
+
+    private <T> T executarReservado(String id, String dono, Class<T> tipo, Supplier<T> acao) {
+        // só o dono atual: se o lease venceu e outra instância assumiu, o registro é dela
+        Query doDono = Query.query(where("_id").is(id).and("dono").is(dono));
+        T resultado;
+        try {
+            resultado = acao.get();
+        } catch (RuntimeException e) {
+            // falhou: libera a chave para o cliente poder repetir
+            mongo.remove(doDono, RequisicaoIdempotente.class);
+            throw e;
+        }
+
+        try {
+            mongo.updateFirst(doDono, new Update()
+                    .set("status", RequisicaoIdempotente.CONCLUIDO)
+                    .set("resposta", objectMapper.writeValueAsString(resultado))
+                    .unset("lease_ate"), RequisicaoIdempotente.class);
+        } catch (Exception e) {
+            // a resposta já existe; só as repetições deixam de ser reaproveitadas
+            log.error("[Idempotencia] Falha ao guardar resposta de {}: {}", id, e.getMessage());
+            mongo.remove(doDono, RequisicaoIdempotente.class);
+        }
+        return resultado;
+    }
+
+    private <T> T ler(String json, Class<T> tipo) {
+        try {
+            return objectMapper.readValue(json, tipo);
+        } catch (JsonProcessingException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Resposta idempotente corrompida.", e);
+        }
+    }
+
+    private String impressao(Object corpo) {
+        if (corpo == null) return "";
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(corpo);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            return String.valueOf(corpo.hashCode());
+        }
+    }
+
+    private void dormir() {
+        try {
+            Thread.sleep(pollMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrompido aguardando requisição original.");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ai.startup.simulado.idempotencia;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import lombok.Data;
+import java.util.Date;
+
+/**
+ * Execução registrada para um Idempotency-Key (coleção idempotencia).
+ * O _id junta operação, id do usuário e chave; o documento some sozinho em {@code expira_em} (índice TTL).
+ */
+@Data
+@Document(collection = "idempotencia")
+public class RequisicaoIdempotente {
+
+    public static final String EM_ANDAMENTO = "EM_ANDAMENTO";
+    public static final String CONCLUIDO = "CONCLUIDO";
+
+    @Id
+    private String id;
+
+    private String status;
+
+    // hash do corpo da primeira requisição (mesma chave com outro corpo é erro do cliente)
+    private String impressao;
+
+    // execução que detém o registro (trocado quando outra instância assume um lease vencido)
+    private String dono;
+
+    // resposta da primeira execução bem-sucedida, em JSON
+    private String resposta;
+
+    // enquanto no futuro, a execução original ainda é considerada viva
+    @Field("lease_ate")
+    private Date leaseAte;
+
+    @Field("criado_em")
+    private Date criadoEm;
+
+    @Indexed(expireAfter = "0s")
+    @Field("expira_em")
+    private Date expiraEm;
+}
@@ -0,0 +1,199 @@
+package ai.startup.simulado.originalexam;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Catálogo em memória dos simulados originais (seed estático, ~80–95 KB por documento).
+ * Guarda a lista ordenada de exam_ids ativos e os OriginalExam já mapeados (carregados
+ * sob demanda), evitando desserializar o documento inteiro a cada início/módulo.
+ * Os objetos devolvidos são compartilhados: quem chama NÃO deve alterá-los.
+ */
+@Slf4j
+@Component
+public class OriginalExamCatalogo {
+
+    private final OriginalExamRepository examRepository;
+    private final MongoTemplate mongo;
+    private final boolean observarMudancas;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    // exam_ids ativos (projeção só do exam_id); null = ainda não carregado
+    private volatile Ativos ativos;
+    // documentos completos, carregados sob demanda
+    private final Map<String, OriginalExam> porExamId = new ConcurrentHashMap<>();
+
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursorMudancas;
+    private volatile boolean encerrando;
+
+    // lock em vez de synchronized: a carga faz I/O no Mongo e synchronized prende a virtual thread
+    private final ReentrantLock carga = new ReentrantLock();
+
+    private record Ativos(List<String> ordem, Set<String> ids) {}
+
+    public OriginalExamCatalogo(OriginalExamRepository examRepository,
+                                MongoTemplate mongo,
+                                MeterRegistry meterRegistry,
+                                @Value("${original-exam.cache.change-streams:false}") boolean observarMudancas) {
+        this.examRepository = examRepository;
+        this.mongo = mongo;
+        this.observarMudancas = observarMudancas;
+        this.hits = Counter.builder("original_exam.cache.hits").description("Leituras de simulado original servidas pelo catálogo").register(meterRegistry);
+        this.misses = Counter.builder("original_exam.cache.misses").description("Leituras de simulado original que foram ao Mongo").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (observarMudancas) {
+            Thread t = new Thread(this::observar, "original-exam-change-stream");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    /** Simulado completo pelo exam_id (read-through). */
+    public Optional<OriginalExam> buscar(String examId) {
+        if (examId == null) return Optional.empty();
+
+        OriginalExam exam = porExamId.get(examId);
+        if (exam != null) {
+            hits.increment();
+            return Optional.of(exam);
+        }
+
+        misses.increment();
+        Optional<OriginalExam> doBanco = examRepository.findByExamId(examId);
+        doBanco.ifPresent(e -> porExamId.put(examId, e));
+        return doBanco;
+    }
+
+    /**
+     * Simulado com uma única lista de questões ({@code campoModulo}, ex.: "module_2_hard").
+     * Se o documento completo já está no catálogo, usa ele; senão busca com projeção, sem cachear.
+     */
+    public Optional<OriginalExam> buscarModulo(String examId, String campoModulo) {
+        if (examId == null) return Optional.empty();
+
+        OriginalExam exam = porExamId.get(examId);
+        if (exam != null) {
+            hits.increment();
+            return Optional.of(exam);
+        }
+
+        misses.increment();
+        return examRepository.findModuloByExamId(examId, campoModulo);
+    }
+
+    /** exam_ids ativos em ordem crescente (SAT_ORIGINAL_001, 002, ...). */
+    public List<String> idsAtivos() {
+        return carregado().ordem();
+    }
+
+    /** O simulado está ativo no catálogo? (O(1)) */
+    public boolean ativo(String examId) {
+        return examId != null && carregado().ids().contains(examId);
+    }
+
+    /** Relê os exam_ids ativos e descarta os documentos em memória. */
+    public int recarregar() {
+        carga.lock();
+        try {
+            porExamId.clear();
+            carregarIds();
+            return ativos.ordem().size();
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    /** Descarta o catálogo; a próxima leitura recarrega do Mongo. */
+    public void invalidar() {
+        carga.lock();
+        try {
+            ativos = null;
+            porExamId.clear();
+        } finally {
+            carga.unlock();
+        }
+        log.info("[OriginalExamCatalogo] Catálogo invalidado");
+    }
+
+    private void carregarIds() {
+        List<String> ordem = new ArrayList<>();
+        for (OriginalExam exam : examRepository.findActiveExamIds()) {
+            if (exam.getExamId() != null) ordem.add(exam.getExamId());
+        }
+        ordem.sort(String::compareTo);
+        ativos = new Ativos(List.copyOf(ordem), Set.copyOf(ordem));
+        log.info("[OriginalExamCatalogo] {} simulados ativos no catálogo", ordem.size());
+    }
+
+    private Ativos carregado() {
+        Ativos a = ativos;
+        if (a != null) {
+            hits.increment();
+            return a;
+        }
+
+        misses.increment();
+        carga.lock();
+        try {
+            if (ativos == null) carregarIds();
+            return ativos;
+        } finally {
+            carga.unlock();
+        }
+    }
+
+    /** Change stream da coleção (exige replica set): qualquer alteração invalida o catálogo. */
+    private void observar() {
+        while (!encerrando) {
+            try (var cursor = mongo.getCollection(mongo.getCollectionName(OriginalExam.class)).watch().cursor()) {
+                cursorMudancas = cursor;
+                log.info("[OriginalExamCatalogo] Observando alterações em original_exams");
+                while (!encerrando && cursor.hasNext()) {
+                    var evento = cursor.next();
+                    log.info("[OriginalExamCatalogo] Alteração detectada ({})", evento.getOperationTypeString());
+                    invalidar();
+                }
+            } catch (Exception e) {
+                if (encerrando) return;
+                log.warn("[OriginalExamCatalogo] Change stream indisponível ({}), nova tentativa em 30s", e.getMessage());
+                try {
+                    Thread.sleep(30_000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        encerrando = true;
+        var cursor = cursorMudancas;
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (Exception ignored) {
+                // já fechado
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package ai.startup.simulado.originalexam;
 
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -163,10 +166,8 @@ public class OriginalExamController {
             return error;
         }
         
-        // Adicionar informações do exam
-        OriginalExam exam = service.getExamByExamId(examId);
+        // Adicionar informações do exam (name já vem da leitura do módulo)
         module2Data.put("exam_id", examId);
-        module2Data.put("name", exam.getName());
         module2Data.put("module", 2);
         
         log.info("[OriginalExamAPI] ✅ Retornando Módulo 2 tipo: {}", 
@@ -297,5 +298,45 @@ public class OriginalExamController {
         
         return response;
     }
-}
 
+    /**
+     * POST /api/simulados/original/cache/reload
+     * Recarrega o catálogo de simulados originais em memória (só ADMIN)
+     */
+    @PostMapping("/cache/reload")
+    public Map<String, Object> reloadCache(HttpServletRequest req) {
+        exigirAdmin(req);
+        log.info("[OriginalExamAPI] POST /cache/reload - Recarregando catálogo");
+
+        int total = service.reloadCatalog();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Catálogo recarregado");
+        response.put("total_exams", total);
+        return response;
+    }
+
+    /**
+     * DELETE /api/simulados/original/cache
+     * Invalida o catálogo em memória, recarregado na próxima leitura (só ADMIN)
+     */
+    @DeleteMapping("/cache")
+    public Map<String, Object> invalidateCache(HttpServletRequest req) {
+        exigirAdmin(req);
+        log.info("[OriginalExamAPI] DELETE /cache - Invalidando catálogo");
+
+        service.invalidateCatalog();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", "Catálogo invalidado");
+        return response;
+    }
+
+    // recarregar/invalidar o catálogo força releituras no Mongo: não fica aberto a qualquer usuário
+    private static void exigirAdmin(HttpServletRequest req) {
+        if (!"ADMIN".equalsIgnoreCase(String.valueOf(req.getAttribute("authPermissao")))) {
+            log.warn("[OriginalExamAPI] Operação de cache recusada para {}", req.getAttribute("authEmail"));
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Operação restrita a administradores.");
+        }
+    }
+}
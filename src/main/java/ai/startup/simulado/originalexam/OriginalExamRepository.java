@@ -1,16 +1,21 @@
 package ai.startup.simulado.originalexam;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface OriginalExamRepository extends MongoRepository<OriginalExam, String> {
+public interface OriginalExamRepository extends MongoRepository<OriginalExam, String>, OriginalExamRepositoryCustom {
     
     Optional<OriginalExam> findByExamId(String examId);
     
     List<OriginalExam> findByIsActiveTrue();
+
+    // só o exam_id dos ativos (os demais campos vêm nulos)
+    @Query(value = "{ 'is_active': true }", fields = "{ 'exam_id': 1 }")
+    List<OriginalExam> findActiveExamIds();
     
     long countByIsActiveTrue();
 }
@@ -0,0 +1,15 @@
+package ai.startup.simulado.originalexam;
+
+import java.util.Optional;
+
+/**
+ * Leituras de OriginalExam com projeção (evita trazer os ~90 KB do documento inteiro).
+ */
+public interface OriginalExamRepositoryCustom {
+
+    /**
+     * Busca o simulado trazendo só os campos de cabeçalho (exam_id, name, is_adaptive, metadata)
+     * e a lista de questões {@code campoModulo} (ex.: "module_2_easy").
+     */
+    Optional<OriginalExam> findModuloByExamId(String examId, String campoModulo);
+}
@@ -0,0 +1,28 @@
+package ai.startup.simulado.originalexam;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Optional;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+@RequiredArgsConstructor
+public class OriginalExamRepositoryCustomImpl implements OriginalExamRepositoryCustom {
+
+    private final MongoTemplate mongo;
+
+    @Override
+    public Optional<OriginalExam> findModuloByExamId(String examId, String campoModulo) {
+        Query query = Query.query(where("exam_id").is(examId));
+        query.fields()
+                .include("exam_id")
+                .include("name")
+                .include("is_adaptive")
+                .include("is_active")
+                .include("metadata")
+                .include(campoModulo);
+        return Optional.ofNullable(mongo.findOne(query, OriginalExam.class));
+    }
+}
@@ -1,13 +1,21 @@
 package ai.startup.simulado.originalexam;
 
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -15,8 +23,9 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class OriginalExamService {
     
-    private final OriginalExamRepository examRepository;
+    private final OriginalExamCatalogo catalogo;
     private final UserExamHistoryRepository historyRepository;
+    private final MongoTemplate mongo;
     private final Random random = new Random();
 
     /**
@@ -32,18 +41,12 @@ public class OriginalExamService {
             .orElse(new UserExamHistory());
         
         // IDs já completados
-        List<String> completedIds = history.getCompletedOriginalExams()
-            .stream()
-            .map(UserExamHistory.CompletedExam::getExamId)
-            .collect(Collectors.toList());
+        Set<String> completedIds = completedExamIds(history);
         
         log.info("[OriginalExam] Simulados já completados: {}", completedIds);
         
         // Todos os simulados ativos
-        List<String> allActiveIds = examRepository.findByIsActiveTrue()
-            .stream()
-            .map(OriginalExam::getExamId)
-            .collect(Collectors.toList());
+        List<String> allActiveIds = catalogo.idsAtivos();
         
         log.info("[OriginalExam] Total de simulados ativos no sistema: {}", allActiveIds.size());
         
@@ -89,32 +92,46 @@ public class OriginalExamService {
      * @return Map com os dados do exam (module_1, module_2_easy, module_2_hard, metadata, exam_id)
      */
     public Map<String, Object> getNextExamForUser(String userId) {
+        Map<String, Object> result = selectNextExam(userId);
+        markNextExamAsStarted(userId, (String) result.get("exam_id"));
+        return result;
+    }
+
+    /**
+     * Mesmo que getNextExamForUser, mas sem marcar como iniciado (só leitura).
+     * Quem chama marca com markNextExamAsStarted depois que o simulado foi criado.
+     * @param userId ID do usuário
+     * @return Map com os dados do exam (module_1, module_2_easy, module_2_hard, metadata, exam_id)
+     */
+    public Map<String, Object> selectNextExam(String userId) {
         log.info("[OriginalExam] Buscando próximo simulado original para userId: {}", userId);
         
-        // Buscar simulados disponíveis (não completados)
-        List<String> available = getAvailableExamIds(userId);
+        UserExamHistory history = historyRepository.findByUserId(userId)
+            .orElseGet(() -> {
+                UserExamHistory newHistory = new UserExamHistory();
+                newHistory.setUserId(userId);
+                return newHistory;
+            });
         
-        if (available.isEmpty()) {
+        // Ponteiro mantido em markExamAsCompleted; se estiver vazio ou desatualizado
+        // (simulado desativado / catálogo mudou / já completado), recalcula pelo conjunto de completados
+        Set<String> completedIds = completedExamIds(history);
+        String nextExamId = history.getNextOriginalExam();
+        if (nextExamId == null || !catalogo.ativo(nextExamId) || completedIds.contains(nextExamId)) {
+            nextExamId = findNextAvailable(completedIds);
+        }
+        
+        if (nextExamId == null) {
             log.error("[OriginalExam] ❌ Usuário {} já completou todos os simulados originais!", userId);
             throw new RuntimeException("MAIS_PROVAS_EM_BREVE");
         }
         
-        // Ordenar por ordem numérica (SAT_ORIGINAL_001, 002, 003, 004...)
-        // String::compareTo funciona porque "SAT_ORIGINAL_001" < "SAT_ORIGINAL_002" < ... < "SAT_ORIGINAL_004"
-        // Garante sequência: 001 -> 002 -> 003 -> 004
-        available.sort(String::compareTo);
-        
-        // Pegar o primeiro disponível (sempre será o menor número ainda não completado)
-        String nextExamId = available.get(0);
-        
         log.info("[OriginalExam] 🎯 Próximo simulado selecionado: {}", nextExamId);
         
         // Buscar o exam completo
-        OriginalExam exam = examRepository.findByExamId(nextExamId)
-            .orElseThrow(() -> new RuntimeException("Simulado " + nextExamId + " não encontrado no banco de dados!"));
-        
-        // Marcar como iniciado
-        markExamAsStarted(userId, nextExamId);
+        final String examId = nextExamId;
+        OriginalExam exam = catalogo.buscar(examId)
+            .orElseThrow(() -> new RuntimeException("Simulado " + examId + " não encontrado no banco de dados!"));
         
         // Converter para Map (compatível com SimuladoService)
         Map<String, Object> result = new java.util.HashMap<>();
@@ -139,7 +156,7 @@ public class OriginalExamService {
      */
     public OriginalExam getExamByExamId(String examId) {
         log.info("[OriginalExam] Buscando simulado: {}", examId);
-        return examRepository.findByExamId(examId).orElse(null);
+        return catalogo.buscar(examId).orElse(null);
     }
 
     /**
@@ -149,7 +166,7 @@ public class OriginalExamService {
      */
     public List<OriginalExam.ExamQuestion> getModule1Questions(String examId) {
         log.info("[OriginalExam] Buscando Módulo 1 do simulado: {}", examId);
-        OriginalExam exam = examRepository.findByExamId(examId).orElse(null);
+        OriginalExam exam = catalogo.buscar(examId).orElse(null);
         
         if (exam == null) {
             log.error("[OriginalExam] ❌ Simulado {} não encontrado!", examId);
@@ -177,7 +194,8 @@ public class OriginalExamService {
         log.info("[OriginalExam] Buscando Módulo 2 do simulado: {} | Corretas no M1: {}", 
                  examId, module1Correct);
         
-        OriginalExam exam = examRepository.findByExamId(examId).orElse(null);
+        // O threshold (metadata) decide o módulo: primeiro só o cabeçalho, depois só a lista escolhida
+        OriginalExam exam = catalogo.buscarModulo(examId, "metadata").orElse(null);
         
         if (exam == null) {
             log.error("[OriginalExam] ❌ Simulado {} não encontrado!", examId);
@@ -197,7 +215,8 @@ public class OriginalExamService {
         // Determinar qual módulo 2 usar
         boolean useHard = module1Correct > threshold;
         String moduleType = useHard ? "hard" : "easy";
-        List<OriginalExam.ExamQuestion> questions = useHard ? exam.getModule2Hard() : exam.getModule2Easy();
+        OriginalExam modulo = catalogo.buscarModulo(examId, useHard ? "module_2_hard" : "module_2_easy").orElse(exam);
+        List<OriginalExam.ExamQuestion> questions = useHard ? modulo.getModule2Hard() : modulo.getModule2Easy();
         
         log.info("[OriginalExam] 🎯 Corretas: {} | Threshold: {} | Módulo 2: {}", 
                  module1Correct, threshold, moduleType.toUpperCase());
@@ -207,6 +226,7 @@ public class OriginalExamService {
         result.put("questions", questions);
         result.put("threshold_used", threshold);
         result.put("module1_correct", module1Correct);
+        result.put("name", exam.getName());
         
         log.info("[OriginalExam] ✅ Retornando Módulo 2 {} com {} questões", 
                  moduleType.toUpperCase(), questions.size());
@@ -220,19 +240,34 @@ public class OriginalExamService {
      * @param examId ID do simulado
      */
     public void markExamAsStarted(String userId, String examId) {
+        upsertStarted(userId, examId, null);
+    }
+
+    /**
+     * Marcar como iniciado o simulado devolvido por selectNextExam (fixa também o ponteiro de próximo)
+     * @param userId ID do usuário
+     * @param examId ID do simulado
+     */
+    public void markNextExamAsStarted(String userId, String examId) {
+        upsertStarted(userId, examId, examId);
+    }
+
+    // $set atômico (upsert por user_id), sem ler o histórico antes
+    private void upsertStarted(String userId, String examId, String nextExamId) {
         log.info("[OriginalExam] Marcando simulado {} como iniciado para userId: {}", examId, userId);
         
-        UserExamHistory history = historyRepository.findByUserId(userId)
-            .orElseGet(() -> {
-                UserExamHistory newHistory = new UserExamHistory();
-                newHistory.setUserId(userId);
-                return newHistory;
-            });
-        
-        history.setCurrentOriginalExam(examId);
-        history.setUpdatedAt(LocalDateTime.now());
-        
-        historyRepository.save(history);
+        Update update = new Update()
+            .set("current_original_exam", examId)
+            .set("updated_at", LocalDateTime.now());
+        if (nextExamId != null) update.set("next_original_exam", nextExamId);
+        
+        Query byUser = Query.query(Criteria.where("user_id").is(userId));
+        try {
+            mongo.upsert(byUser, update, UserExamHistory.class);
+        } catch (DuplicateKeyException e) {
+            // outro request criou o histórico ao mesmo tempo: agora é só update
+            mongo.updateFirst(byUser, update, UserExamHistory.class);
+        }
         
         log.info("[OriginalExam] ✅ Simulado {} marcado como em andamento", examId);
     }
@@ -255,24 +290,6 @@ public class OriginalExamService {
         log.info("[OriginalExam] Score: {}%, Tempo: {} min, AttemptId: {}", score, timeTaken, attemptId);
         log.info("[OriginalExam] M1 Score: {}, M2 Type: {}", module1Score, module2Type);
         
-        UserExamHistory history = historyRepository.findByUserId(userId)
-            .orElseGet(() -> {
-                UserExamHistory newHistory = new UserExamHistory();
-                newHistory.setUserId(userId);
-                return newHistory;
-            });
-        
-        // Verificar se já não foi completado (proteção contra duplicação)
-        boolean alreadyCompleted = history.getCompletedOriginalExams()
-            .stream()
-            .anyMatch(e -> e.getExamId().equals(examId));
-        
-        if (alreadyCompleted) {
-            log.warn("[OriginalExam] ⚠️ DUPLICAÇÃO DETECTADA! Simulado {} já foi completado anteriormente pelo usuário {}", 
-                     examId, userId);
-            return;
-        }
-        
         // Adicionar ao histórico
         UserExamHistory.CompletedExam completed = new UserExamHistory.CompletedExam();
         completed.setExamId(examId);
@@ -283,16 +300,61 @@ public class OriginalExamService {
         completed.setModule1Score(module1Score);
         completed.setModule2Type(module2Type);
         
-        history.getCompletedOriginalExams().add(completed);
-        history.setCurrentOriginalExam(null); // Limpar "em andamento"
-        history.setUpdatedAt(LocalDateTime.now());
+        // Próximo ponteiro calculado antes e gravado no mesmo findAndModify do push (sem segunda escrita
+        // que possa falhar). Se outra conclusão em paralelo o deixar para trás, selectNextExam recalcula.
+        Set<String> completedIds = historyRepository.findByUserId(userId)
+            .map(this::completedExamIds)
+            .orElseGet(HashSet::new);
+        completedIds.add(examId);
+        
+        // Push atômico com guarda no exam_id (proteção contra duplicação mesmo com requests em paralelo).
+        // Se o usuário já tem o exam, o filtro não casa e o upsert bate no índice único de user_id.
+        Query notCompleted = Query.query(Criteria.where("user_id").is(userId)
+            .and("completed_original_exams.exam_id").ne(examId));
+        Update update = new Update()
+            .push("completed_original_exams", completed)
+            .set("current_original_exam", null) // Limpar "em andamento"
+            .set("next_original_exam", findNextAvailable(completedIds))
+            .set("updated_at", LocalDateTime.now());
+        
+        UserExamHistory history;
+        try {
+            history = mongo.findAndModify(notCompleted, update,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), UserExamHistory.class);
+        } catch (DuplicateKeyException e) {
+            history = null;
+        }
         
-        historyRepository.save(history);
+        if (history == null) {
+            log.warn("[OriginalExam] ⚠️ DUPLICAÇÃO DETECTADA! Simulado {} já foi completado anteriormente pelo usuário {}", 
+                     examId, userId);
+            return;
+        }
         
         log.info("[OriginalExam] ✅ Simulado {} completado com sucesso! Total completados: {}", 
                  examId, history.getCompletedOriginalExams().size());
     }
 
+    /**
+     * Primeiro simulado ativo (ordem SAT_ORIGINAL_001, 002, ...) que o usuário ainda não completou
+     * @param completedIds exam_ids já completados pelo usuário
+     * @return exam_id ou null se todos já foram completados
+     */
+    private String findNextAvailable(Set<String> completedIds) {
+        for (String examId : catalogo.idsAtivos()) {
+            if (!completedIds.contains(examId)) return examId;
+        }
+        return null;
+    }
+
+    private Set<String> completedExamIds(UserExamHistory history) {
+        Set<String> ids = new HashSet<>();
+        for (UserExamHistory.CompletedExam e : history.getCompletedOriginalExams()) {
+            ids.add(e.getExamId());
+        }
+        return ids;
+    }
+
     /**
      * Contar quantos simulados o usuário já completou
      * @param userId ID do usuário
@@ -335,7 +397,22 @@ public class OriginalExamService {
      * @return Quantidade de simulados originais disponíveis
      */
     public long getTotalActiveExams() {
-        return examRepository.countByIsActiveTrue();
+        return catalogo.idsAtivos().size();
+    }
+
+    /**
+     * Recarregar o catálogo em memória a partir do Mongo (ex.: após um novo seed)
+     * @return Quantidade de simulados carregados
+     */
+    public int reloadCatalog() {
+        return catalogo.recarregar();
+    }
+
+    /**
+     * Invalidar o catálogo em memória (a próxima leitura recarrega do Mongo)
+     */
+    public void invalidateCatalog() {
+        catalogo.invalidar();
     }
 
     /**
@@ -1,6 +1,7 @@
 package ai.startup.simulado.originalexam;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 import lombok.Data;
@@ -15,6 +16,7 @@ public class UserExamHistory {
     @Id
     private String id;
     
+    @Indexed(unique = true)
     @Field("user_id")
     private String userId;
     
@@ -24,6 +26,10 @@ public class UserExamHistory {
     @Field("current_original_exam")
     private String currentOriginalExam;
     
+    // próximo simulado original a fazer (atualizado a cada conclusão; null = recalcular)
+    @Field("next_original_exam")
+    private String nextOriginalExam;
+    
     @Field("updated_at")
     private LocalDateTime updatedAt;
 
@@ -0,0 +1,124 @@
+package ai.startup.simulado.perfil;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Acumuladores persistidos do perfil por usuário.
+ * Guarda contadores exatos por structure para que o finalize só precise
+ * somar as questões do simulado atual (em vez de reprocessar todo o histórico).
+ */
+@Data
+@Document(collection = "perfil_acumulados")
+public class PerfilAcumulado {
+
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    @Field("user_id")
+    private String userId;
+
+    private List<Estrutura> estruturas = new ArrayList<>();
+
+    // subskills vistas nos dois últimos simulados finalizados (para missed_two_sessions)
+    @Field("subskills_ultimo")
+    private Set<String> subskillsUltimo;
+
+    @Field("subskills_penultimo")
+    private Set<String> subskillsPenultimo;
+
+    @Field("ultimo_simulado_id")
+    private String ultimoSimuladoId;
+
+    // simulados já somados nos acumuladores (evita agregar duas vezes em retentativas)
+    @Field("simulados_agregados")
+    private Set<String> simuladosAgregados = new HashSet<>();
+
+    @Field("updated_at")
+    private LocalDateTime updatedAt;
+
+    // save condicional: dois recálculos do mesmo usuário não se sobrescrevem (o segundo refaz)
+    @Version
+    private Long versao;
+
+    @Transient
+    private Map<String, Estrutura> indice;
+
+    /** Busca (ou cria zerado) o acumulador de uma structure. */
+    public Estrutura estrutura(String topic, String subskill, String structure) {
+        return indice().computeIfAbsent(chave(topic, subskill, structure), k -> {
+            Estrutura nova = new Estrutura();
+            nova.setTopic(topic);
+            nova.setSubskill(subskill);
+            nova.setStructure(structure);
+            estruturas.add(nova);
+            return nova;
+        });
+    }
+
+    /** Acumulador de uma structure, ou null se o usuário nunca a viu. */
+    public Estrutura buscar(String topic, String subskill, String structure) {
+        return indice().get(chave(topic, subskill, structure));
+    }
+
+    private Map<String, Estrutura> indice() {
+        if (indice == null) {
+            indice = new HashMap<>();
+            for (var e : estruturas) indice.put(chave(e.getTopic(), e.getSubskill(), e.getStructure()), e);
+        }
+        return indice;
+    }
+
+    private static String chave(String topic, String subskill, String structure) {
+        return topic + '|' + subskill + '|' + structure;
+    }
+
+    @Data
+    public static class Estrutura {
+        private String topic;
+        private String subskill;
+        private String structure;
+
+        private long attempts;
+        private long correct;
+        private long hints;
+        private long solutions;
+
+        @Field("medium_exposures")
+        private long mediumExposures;
+
+        @Field("hard_exposures")
+        private long hardExposures;
+
+        @Field("easy_seen")
+        private boolean easySeen;
+
+        @Field("medium_seen")
+        private boolean mediumSeen;
+
+        @Field("hard_seen")
+        private boolean hardSeen;
+
+        @Field("last_level")
+        private String lastLevel = "easy";
+
+        @Field("p_sc")
+        private int pSc = 50;
+
+        @Field("last_seen_at")
+        private LocalDateTime lastSeenAt;
+    }
+}
@@ -0,0 +1,18 @@
+package ai.startup.simulado.perfil;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.Update;
+import org.springframework.stereotype.Repository;
+import java.util.Optional;
+
+@Repository
+public interface PerfilAcumuladoRepository extends MongoRepository<PerfilAcumulado, String> {
+
+    Optional<PerfilAcumulado> findByUserId(String userId);
+
+    /** Documentos gravados antes do @Version não têm o campo: começa em 0 para o save condicional valer. */
+    @Query("{ '_id': ?0, 'versao': { $exists: false } }")
+    @Update("{ '$set': { 'versao': 0 } }")
+    void inicializarVersao(String id);
+}
@@ -1,5 +1,8 @@
 package ai.startup.simulado.perfil;
 
+import ai.startup.simulado.http.HttpClientConfig;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -10,7 +13,7 @@ public class PerfilClient {
     private final RestTemplate rt;
     private final String base;
 
-    public PerfilClient(RestTemplate rt, @Value("${api.perfil.base}") String base) {
+    public PerfilClient(@Qualifier(HttpClientConfig.PERFIL) RestTemplate rt, @Value("${api.perfil.base}") String base) {
         this.rt = rt; this.base = base;
     }
 
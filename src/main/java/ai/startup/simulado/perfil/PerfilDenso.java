@@ -0,0 +1,177 @@
+package ai.startup.simulado.perfil;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Acumuladores de um {@link PerfilAcumulado} em colunas primitivas, uma posição por structure.
+ * As posições 0..template.tamanho()-1 são as structures do template (mesmo índice denso);
+ * structures fora do template (catálogo antigo, questão com nome novo) vão para o fim.
+ * Somar uma questão não aloca nada; os DTOs só são montados no fim, a partir dos contadores exatos.
+ * Vale para um finalize: não é thread-safe.
+ */
+public final class PerfilDenso {
+
+    static final byte EASY = 1;
+    static final byte MEDIUM = 2;
+    static final byte HARD = 3;
+
+    static final byte VIU_EASY = 1;
+    static final byte VIU_MEDIUM = 2;
+    static final byte VIU_HARD = 4;
+
+    // last_seen_at: epoch em ms (UTC, o LocalDateTime não tem fuso); NUNCA = sem data
+    static final long NUNCA = Long.MIN_VALUE;
+
+    private final PerfilAcumulado acumulado;
+    private final PerfilTemplate template;
+
+    private int tamanho;
+    long[] attempts;
+    long[] correct;
+    long[] hints;
+    long[] solutions;
+    long[] mediumExposures;
+    long[] hardExposures;
+    int[] pSc;
+    byte[] nivel;
+    byte[] vistos;
+    long[] ultimaVez;
+
+    // structures fora do template: chave "topic|subskill|structure" -> posição
+    private final Map<String, Integer> extras = new HashMap<>();
+    private final List<String[]> nomesExtras = new ArrayList<>();
+
+    PerfilDenso(PerfilAcumulado acumulado, PerfilTemplate template) {
+        this.acumulado = acumulado;
+        this.template = template;
+        this.tamanho = template.tamanho();
+
+        int capacidade = tamanho + acumulado.getEstruturas().size();
+        attempts = new long[capacidade];
+        correct = new long[capacidade];
+        hints = new long[capacidade];
+        solutions = new long[capacidade];
+        mediumExposures = new long[capacidade];
+        hardExposures = new long[capacidade];
+        pSc = new int[capacidade];
+        nivel = new byte[capacidade];
+        vistos = new byte[capacidade];
+        ultimaVez = new long[capacidade];
+        Arrays.fill(pSc, 50);
+        Arrays.fill(nivel, EASY);
+        Arrays.fill(ultimaVez, NUNCA);
+
+        for (var e : acumulado.getEstruturas()) {
+            int i = posicao(e.getTopic(), e.getSubskill(), e.getStructure());
+            attempts[i] = e.getAttempts();
+            correct[i] = e.getCorrect();
+            hints[i] = e.getHints();
+            solutions[i] = e.getSolutions();
+            mediumExposures[i] = e.getMediumExposures();
+            hardExposures[i] = e.getHardExposures();
+            pSc[i] = e.getPSc();
+            nivel[i] = nivel(e.getLastLevel());
+            vistos[i] = (byte) ((e.isEasySeen() ? VIU_EASY : 0) | (e.isMediumSeen() ? VIU_MEDIUM : 0) | (e.isHardSeen() ? VIU_HARD : 0));
+            ultimaVez[i] = epoch(e.getLastSeenAt());
+        }
+    }
+
+    public PerfilAcumulado acumulado() {
+        return acumulado;
+    }
+
+    PerfilTemplate template() {
+        return template;
+    }
+
+    /** Posição da structure (criada zerada no fim se não está no template). */
+    int posicao(String topic, String subskill, String structure) {
+        int i = template.indice(topic, subskill, structure);
+        if (i >= 0) return i;
+
+        String chave = topic + '|' + subskill + '|' + structure;
+        Integer extra = extras.get(chave);
+        if (extra != null) return extra;
+
+        int nova = tamanho++;
+        garantirCapacidade(tamanho);
+        extras.put(chave, nova);
+        nomesExtras.add(new String[]{topic, subskill, structure});
+        return nova;
+    }
+
+    /** Copia as colunas de volta para as Estruturas persistidas (só as que o usuário já viu). */
+    public void gravar() {
+        for (int i = 0; i < tamanho; i++) {
+            if (attempts[i] == 0) continue;
+
+            var e = i < template.tamanho()
+                    ? acumulado.estrutura(template.topic(i), template.subskill(i), template.structure(i))
+                    : acumulado.estrutura(nomesExtras.get(i - template.tamanho())[0],
+                                          nomesExtras.get(i - template.tamanho())[1],
+                                          nomesExtras.get(i - template.tamanho())[2]);
+            e.setAttempts(attempts[i]);
+            e.setCorrect(correct[i]);
+            e.setHints(hints[i]);
+            e.setSolutions(solutions[i]);
+            e.setMediumExposures(mediumExposures[i]);
+            e.setHardExposures(hardExposures[i]);
+            e.setPSc(pSc[i]);
+            e.setLastLevel(nivel(nivel[i]));
+            e.setEasySeen((vistos[i] & VIU_EASY) != 0);
+            e.setMediumSeen((vistos[i] & VIU_MEDIUM) != 0);
+            e.setHardSeen((vistos[i] & VIU_HARD) != 0);
+            e.setLastSeenAt(data(ultimaVez[i]));
+        }
+    }
+
+    private void garantirCapacidade(int minimo) {
+        if (minimo <= attempts.length) return;
+        int nova = Math.max(minimo, attempts.length * 2);
+        int antiga = attempts.length;
+        attempts = Arrays.copyOf(attempts, nova);
+        correct = Arrays.copyOf(correct, nova);
+        hints = Arrays.copyOf(hints, nova);
+        solutions = Arrays.copyOf(solutions, nova);
+        mediumExposures = Arrays.copyOf(mediumExposures, nova);
+        hardExposures = Arrays.copyOf(hardExposures, nova);
+        pSc = Arrays.copyOf(pSc, nova);
+        nivel = Arrays.copyOf(nivel, nova);
+        vistos = Arrays.copyOf(vistos, nova);
+        ultimaVez = Arrays.copyOf(ultimaVez, nova);
+        Arrays.fill(pSc, antiga, nova, 50);
+        Arrays.fill(nivel, antiga, nova, EASY);
+        Arrays.fill(ultimaVez, antiga, nova, NUNCA);
+    }
+
+    static byte nivel(String lvl) {
+        if (lvl == null) return EASY;
+        String v = lvl.trim().toLowerCase();
+        if ("hard".equals(v)) return HARD;
+        if ("medium".equals(v)) return MEDIUM;
+        return EASY;
+    }
+
+    static String nivel(byte n) {
+        return switch (n) {
+            case HARD -> "hard";
+            case MEDIUM -> "medium";
+            default -> "easy";
+        };
+    }
+
+    static long epoch(LocalDateTime data) {
+        return data == null ? NUNCA : data.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime data(long epoch) {
+        return epoch == NUNCA ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(epoch), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,226 @@
+package ai.startup.simulado.perfil;
+
+import ai.startup.simulado.questaosimulado.QuestaoResumo;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cálculo do perfil a partir dos acumuladores por structure.
+ * Sem estado mutável no bean: tudo que é específico de um finalize vem no {@link Contexto},
+ * então vários finalizes (de usuários diferentes) podem rodar em paralelo no mesmo nó.
+ */
+@Component
+public class PerfilEngine {
+
+    private final PerfilTemplateProvider perfilTemplateProvider;
+
+    public PerfilEngine(PerfilTemplateProvider perfilTemplateProvider) {
+        this.perfilTemplateProvider = perfilTemplateProvider;
+    }
+
+    private static final long MS_POR_DIA = 86_400_000L;
+
+    /**
+     * Dados de uma chamada de finalize. Datas em epoch ms (UTC, como em {@link PerfilDenso});
+     * viram ISO só na montagem dos DTOs.
+     * @param simIdToDate data de cada simulado do usuário (para last_seen_at_sc)
+     * @param agora instante de referência para o cooldown, capturado uma vez por finalize
+     */
+    public record Contexto(Map<String, Long> simIdToDate, long agora) {
+        public Contexto {
+            simIdToDate = simIdToDate == null ? Collections.emptyMap() : simIdToDate;
+        }
+    }
+
+    public Set<String> subskillsDoSimulado(List<QuestaoResumo> qs, String simId) {
+        Set<String> subs = new HashSet<>();
+        for (var q : qs) {
+            if (simId.equals(q.idFormulario())) {
+                String sub = q.subskill();
+                if (sub != null) subs.add(sub);
+            }
+        }
+        return subs;
+    }
+
+    // structure que o usuário nunca viu (P_sc neutro 50; last_level "easy"; last_seen_at_sc = null)
+    private static final StructureDTO ESTRUTURA_ZERADA = new StructureDTO(
+            50, 0L, 0L, 0.0, 0.0,
+            false, false, false,
+            0L, 0L,
+            "easy", 0, null
+    );
+
+    /** Acumuladores do usuário em colunas indexadas pelo template atual. */
+    public PerfilDenso carregar(PerfilAcumulado acumulado) {
+        return new PerfilDenso(acumulado, perfilTemplateProvider.getTemplate());
+    }
+
+    /**
+     * Preenche o template (mantendo o catálogo) com os acumuladores do usuário.
+     * Mantém total_estruturas_s a partir do template (NUNCA remover nada).
+     * Os agregados da subskill saem dos contadores exatos (sem voltar de rate para contagem).
+     */
+    public Map<String, TopicDTO> montarPerfil(PerfilDenso denso, Contexto ctx) {
+        PerfilTemplate template = denso.template();
+        Set<String> subsUlt1 = denso.acumulado().getSubskillsUltimo();
+        Set<String> subsUlt2 = denso.acumulado().getSubskillsPenultimo();
+
+        Map<String, TopicDTO> out = new HashMap<>();
+        for (String topic : template.topics()) out.put(topic, new TopicDTO(new HashMap<>()));
+
+        long agora = ctx.agora();
+        for (var sub : template.subskills()) {
+            Map<String, StructureDTO> newStructs = new HashMap<>();
+            // total_estruturas_s do template (o compilar cai para a contagem de structures se faltar)
+            long total = sub.totalEstruturas();
+            if (sub.fim() == sub.inicio()) {
+                out.get(sub.topic()).subskills().put(sub.nome(), new SubskillDTO(
+                        0L, 0L, 0.0, 0.0, null, null, false, false, false, 0L, total, newStructs));
+                continue;
+            }
+
+            long attempts_s = 0, correct_s = 0, hintsUsed = 0, solsUsed = 0, vistas = 0;
+            int vistos = 0;
+            long lastSeen = PerfilDenso.NUNCA;
+
+            for (int i = sub.inicio(); i < sub.fim(); i++) {
+                long a = denso.attempts[i];
+                if (a == 0) {
+                    newStructs.put(template.structure(i), ESTRUTURA_ZERADA);
+                    continue;
+                }
+                newStructs.put(template.structure(i), toStructureDTO(denso, i, agora));
+
+                attempts_s += a;
+                correct_s  += denso.correct[i];
+                hintsUsed  += denso.hints[i];
+                solsUsed   += denso.solutions[i];
+                vistas     += 1;
+                vistos     |= denso.vistos[i];
+                // last_seen_at_s = max(last_seen_at_sc)
+                if (denso.ultimaVez[i] > lastSeen) lastSeen = denso.ultimaVez[i];
+            }
+
+            double hr_s = attempts_s == 0 ? 0.0 : (hintsUsed * 1.0 / attempts_s);
+            double sr_s = attempts_s == 0 ? 0.0 : (solsUsed  * 1.0 / attempts_s);
+
+            out.get(sub.topic()).subskills().put(sub.nome(), new SubskillDTO(
+                    attempts_s, correct_s, hr_s, sr_s,
+                    lastSeen == PerfilDenso.NUNCA ? null : PerfilDenso.data(lastSeen).toString(),
+                    missedTwoSessions(sub.nome(), subsUlt1, subsUlt2),
+                    (vistos & PerfilDenso.VIU_EASY) != 0,
+                    (vistos & PerfilDenso.VIU_MEDIUM) != 0,
+                    (vistos & PerfilDenso.VIU_HARD) != 0,
+                    vistas, total,
+                    newStructs
+            ));
+        }
+        return out;
+    }
+
+    private StructureDTO toStructureDTO(PerfilDenso d, int i, long agora) {
+        long attempts = d.attempts[i];
+        double hintsRate     = attempts == 0 ? 0.0 : (d.hints[i] * 1.0 / attempts);
+        double solutionsRate = attempts == 0 ? 0.0 : (d.solutions[i] * 1.0 / attempts);
+
+        // ===== cooldown por “tempo desde última exposição”
+        long lastSeenAt = d.ultimaVez[i];
+        int cooldown = 0;
+        if (lastSeenAt != PerfilDenso.NUNCA) {
+            long days = (agora - lastSeenAt) / MS_POR_DIA; // trunca para zero, como Duration.toDays()
+            cooldown = (int) Math.max(0, 2 - days);
+        }
+
+        return new StructureDTO(
+                d.pSc[i],
+                attempts,
+                d.correct[i],
+                hintsRate,
+                solutionsRate,
+                (d.vistos[i] & PerfilDenso.VIU_EASY) != 0,
+                (d.vistos[i] & PerfilDenso.VIU_MEDIUM) != 0,
+                (d.vistos[i] & PerfilDenso.VIU_HARD) != 0,
+                d.mediumExposures[i],
+                d.hardExposures[i],
+                PerfilDenso.nivel(d.nivel[i]),
+                cooldown,
+                lastSeenAt == PerfilDenso.NUNCA ? null : PerfilDenso.data(lastSeenAt).toString()
+        );
+    }
+
+    /**
+     * Soma as questões nos acumuladores por structure (colunas do {@link PerfilDenso}).
+     * Entrada: só as do simulado atual no modo incremental, ou todo o histórico na reconstrução.
+     */
+    public void agregarQuestoes(PerfilDenso d, List<QuestaoResumo> qs, Contexto ctx) {
+        if (qs == null || qs.isEmpty()) return;
+
+        for (var q : qs) {
+            String topic = q.topic();
+            String sub   = q.subskill();
+            String st    = q.structure();
+            if (topic == null || sub == null || st == null) continue;
+
+            int i = d.posicao(topic, sub, st);
+
+            // ===== contadores básicos =====
+            long attempts = ++d.attempts[i];
+
+            String marcada = q.alternativaMarcada();
+            String correta = q.correctOption();
+            boolean acertou = (marcada != null && correta != null && marcada.equalsIgnoreCase(correta));
+            if (acertou) d.correct[i]++;
+
+            if (q.dica())    d.hints[i]++;
+            if (q.solucao()) d.solutions[i]++;
+
+            String diff = q.difficulty();
+            boolean easy   = "easy".equalsIgnoreCase(diff);
+            boolean medium = "medium".equalsIgnoreCase(diff);
+            boolean hard   = "hard".equalsIgnoreCase(diff);
+
+            if (medium) d.mediumExposures[i]++;
+            if (hard)   d.hardExposures[i]++;
+            d.vistos[i] |= (byte) ((easy ? PerfilDenso.VIU_EASY : 0) | (medium ? PerfilDenso.VIU_MEDIUM : 0) | (hard ? PerfilDenso.VIU_HARD : 0));
+
+            // ===== last_seen_at a partir da data do simulado =====
+            Long seenAt = ctx.simIdToDate().get(q.idFormulario());
+            if (seenAt != null && seenAt > d.ultimaVez[i]) d.ultimaVez[i] = seenAt;
+
+            // ===== nível aplicado (maior dificuldade vista)
+            byte nivel = PerfilDenso.nivel(diff);
+            if (nivel > d.nivel[i]) d.nivel[i] = nivel;
+
+            // ===== P_sc heurístico
+            double hintsRate     = d.hints[i] * 1.0 / attempts;
+            double solutionsRate = d.solutions[i] * 1.0 / attempts;
+            int p = d.pSc[i];
+            double accRate = d.correct[i] * 1.0 / attempts;
+            if (accRate >= 0.85) p += 3;
+            if (d.hardExposures[i] >= 2 && accRate >= 0.7) p += 2;
+            if (hintsRate >= 0.5) p -= 4;
+            if (solutionsRate >= 0.3) p -= 6;
+            d.pSc[i] = Math.max(0, Math.min(100, p));
+        }
+    }
+
+    /** missed_two_sessions com base nos dois últimos finalizados (null sem nenhum finalizado). */
+    private static Boolean missedTwoSessions(String sName, Set<String> subsUlt1, Set<String> subsUlt2) {
+        if (subsUlt1 == null) return null;
+        boolean inUlt1 = subsUlt1.contains(sName);
+        if (subsUlt2 != null && !subsUlt2.isEmpty()) {
+            boolean inUlt2 = subsUlt2.contains(sName);
+            return !inUlt1 && !inUlt2;
+        }
+        // só 1 simulado finalizado disponível
+        return !inUlt1;
+    }
+}
@@ -0,0 +1,57 @@
+package ai.startup.simulado.perfil;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Item da fila de recálculo de perfil (um documento por usuário).
+ * Finalizes do mesmo usuário se juntam em {@code simulados} enquanto o job não é processado.
+ */
+@Data
+@Document(collection = "perfil_jobs")
+public class PerfilJob {
+
+    public static final String PENDENTE = "PENDENTE";
+    public static final String PROCESSANDO = "PROCESSANDO";
+    public static final String CONCLUIDO = "CONCLUIDO";
+    public static final String ERRO = "ERRO";
+
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    @Field("user_id")
+    private String userId;
+
+    // simulados finalizados aguardando agregação
+    private Set<String> simulados = new HashSet<>();
+
+    @Indexed
+    private String status;
+
+    private int tentativas;
+
+    @Field("proxima_tentativa")
+    private LocalDateTime proximaTentativa;
+
+    // enquanto no futuro, o job pertence ao worker que o pegou
+    @Field("lease_ate")
+    private LocalDateTime leaseAte;
+
+    private String erro;
+
+    @Field("criado_em")
+    private LocalDateTime criadoEm;
+
+    @Field("atualizado_em")
+    private LocalDateTime atualizadoEm;
+
+    @Field("concluido_em")
+    private LocalDateTime concluidoEm;
+}
@@ -0,0 +1,218 @@
+package ai.startup.simulado.perfil;
+
+import ai.startup.simulado.auth.ServicoToken;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Fila durável (coleção perfil_jobs) para recalcular perfis fora da requisição de finalize.
+ * - um documento por usuário: finalizes seguidos do mesmo usuário são coalescidos;
+ * - workers pegam jobs com lease, então um job abandonado (restart) volta para a fila;
+ * - falhas são retentadas com backoff exponencial até {@code max-tentativas};
+ * - o worker chama as APIs com a credencial do serviço ({@link ServicoToken}), não com o token do usuário.
+ */
+@Slf4j
+@Component
+public class PerfilRecalculoFila {
+
+    private final MongoTemplate mongo;
+    private final PerfilRecalculoService recalculoService;
+    private final ServicoToken servicoToken;
+    private final int workers;
+    private final int capacidade;
+    private final int maxTentativas;
+    private final Duration lease;
+    private final ExecutorService executor;
+    private final AtomicInteger emAndamento = new AtomicInteger();
+
+    public PerfilRecalculoFila(MongoTemplate mongo,
+                               PerfilRecalculoService recalculoService,
+                               ServicoToken servicoToken,
+                               @Value("${perfil.recalculo.workers:4}") int workers,
+                               @Value("${perfil.recalculo.capacidade:10000}") int capacidade,
+                               @Value("${perfil.recalculo.max-tentativas:5}") int maxTentativas,
+                               @Value("${perfil.recalculo.lease-segundos:300}") long leaseSegundos,
+                               @Value("${spring.threads.virtual.enabled:false}") boolean threadsVirtuais) {
+        this.mongo = mongo;
+        this.recalculoService = recalculoService;
+        this.servicoToken = servicoToken;
+        this.workers = workers;
+        this.capacidade = capacidade;
+        this.maxTentativas = maxTentativas;
+        this.lease = Duration.ofSeconds(leaseSegundos);
+        // workers continua sendo o limite de recálculos simultâneos; com virtual threads
+        // a espera pelas APIs de Questões/Perfil não prende thread de plataforma
+        this.executor = threadsVirtuais
+                ? Executors.newFixedThreadPool(workers, Thread.ofVirtual().name("perfil-recalculo-", 0).factory())
+                : Executors.newFixedThreadPool(workers);
+    }
+
+    /**
+     * Enfileira o recálculo do perfil após um finalize.
+     * A capacidade só barra usuários sem job: quem já tem documento só junta o simulado a ele.
+     * O limite é aproximado (contagem e upsert são operações separadas).
+     * @return false se a fila está cheia (quem chamou deve recalcular de forma síncrona)
+     */
+    public boolean enfileirar(String userId, String simuladoId) {
+        LocalDateTime agora = LocalDateTime.now();
+        Update update = new Update()
+                .addToSet("simulados", simuladoId)
+                .unset("bearer") // jobs antigos guardavam o token do usuário
+                .set("status", PerfilJob.PENDENTE)
+                .set("tentativas", 0)
+                .set("proxima_tentativa", agora)
+                .set("atualizado_em", agora)
+                .unset("erro")
+                .setOnInsert("criado_em", agora);
+        Query porUsuario = Query.query(where("user_id").is(userId));
+        if (mongo.updateFirst(porUsuario, update, PerfilJob.class).getMatchedCount() > 0) {
+            log.info("[PerfilFila] Recálculo enfileirado para usuário {} (simulado {}, job existente)", userId, simuladoId);
+            return true;
+        }
+
+        long pendentes = mongo.count(Query.query(where("status").is(PerfilJob.PENDENTE)), PerfilJob.class);
+        if (pendentes >= capacidade) {
+            log.warn("[PerfilFila] Fila cheia ({} pendentes), recálculo do usuário {} será síncrono", pendentes, userId);
+            return false;
+        }
+        try {
+            mongo.upsert(porUsuario, update, PerfilJob.class);
+        } catch (DuplicateKeyException e) {
+            // outro finalize do mesmo usuário criou o documento ao mesmo tempo: agora é só update
+            mongo.updateFirst(porUsuario, update, PerfilJob.class);
+        }
+        log.info("[PerfilFila] Recálculo enfileirado para usuário {} (simulado {})", userId, simuladoId);
+        return true;
+    }
+
+    /** Situação do recálculo de perfil do usuário (para o cliente consultar). */
+    public Map<String, Object> status(String userId) {
+        PerfilJob job = mongo.findOne(Query.query(where("user_id").is(userId)), PerfilJob.class);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("user_id", userId);
+        if (job == null) {
+            response.put("status", "NENHUM");
+            return response;
+        }
+        response.put("status", job.getStatus());
+        response.put("simulados_pendentes", job.getSimulados().size());
+        response.put("tentativas", job.getTentativas());
+        // a mensagem da exceção fica só no log/documento; o cliente recebe um motivo genérico
+        if (job.getErro() != null) response.put("erro", PerfilJob.ERRO.equals(job.getStatus())
+                ? "Não foi possível recalcular o perfil; ele será recalculado no próximo simulado finalizado."
+                : "Falha temporária ao recalcular o perfil; nova tentativa agendada.");
+        response.put("atualizado_em", job.getAtualizadoEm());
+        response.put("concluido_em", job.getConcluidoEm());
+        return response;
+    }
+
+    /** Pega jobs prontos enquanto houver worker livre. */
+    @Scheduled(fixedDelayString = "${perfil.recalculo.poll-ms:500}")
+    public void drenar() {
+        while (emAndamento.get() < workers) {
+            PerfilJob job = pegarProximo();
+            if (job == null) return;
+
+            emAndamento.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        processar(job);
+                    } finally {
+                        emAndamento.decrementAndGet();
+                    }
+                });
+            } catch (RuntimeException e) {
+                // executor encerrando: o lease expira e o job volta para a fila
+                emAndamento.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    private PerfilJob pegarProximo() {
+        LocalDateTime agora = LocalDateTime.now();
+        Query query = Query.query(new Criteria().andOperator(
+                where("simulados.0").exists(true),
+                where("proxima_tentativa").lte(agora),
+                new Criteria().orOperator(where("lease_ate").is(null), where("lease_ate").lt(agora))
+        ));
+        Update update = new Update()
+                .set("lease_ate", agora.plus(lease))
+                .set("status", PerfilJob.PROCESSANDO)
+                .set("atualizado_em", agora);
+        return mongo.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), PerfilJob.class);
+    }
+
+    private void processar(PerfilJob job) {
+        Query doLease = Query.query(where("_id").is(job.getId()).and("lease_ate").is(job.getLeaseAte()));
+        try {
+            recalculoService.recalcular(job.getUserId(), job.getSimulados(), servicoToken.bearer());
+
+            LocalDateTime agora = LocalDateTime.now();
+            mongo.updateFirst(doLease, new Update()
+                    .pullAll("simulados", job.getSimulados().toArray())
+                    .unset("lease_ate")
+                    .unset("erro")
+                    .unset("bearer")
+                    .set("tentativas", 0)
+                    .set("status", PerfilJob.PENDENTE)
+                    .set("atualizado_em", agora)
+                    .set("concluido_em", agora), PerfilJob.class);
+            // se nenhum finalize chegou durante o processamento, o job está concluído
+            mongo.updateFirst(Query.query(where("_id").is(job.getId()).and("simulados").size(0)),
+                    new Update().set("status", PerfilJob.CONCLUIDO), PerfilJob.class);
+
+            log.info("[PerfilFila] ✅ Perfil do usuário {} recalculado ({} simulados)",
+                    job.getUserId(), job.getSimulados().size());
+        } catch (Exception e) {
+            int tentativas = job.getTentativas() + 1;
+            boolean desistir = tentativas >= maxTentativas;
+            LocalDateTime agora = LocalDateTime.now();
+
+            Update update = new Update()
+                    .set("tentativas", tentativas)
+                    .set("erro", e.getMessage())
+                    .unset("lease_ate")
+                    .unset("bearer")
+                    .set("atualizado_em", agora);
+            if (desistir) {
+                // fica parado até o próximo finalize do usuário reenfileirar
+                update.set("status", PerfilJob.ERRO).unset("proxima_tentativa");
+            } else {
+                long espera = 5L << Math.min(tentativas, 10); // 10s, 20s, 40s, ...
+                update.set("status", PerfilJob.PENDENTE).set("proxima_tentativa", agora.plusSeconds(espera));
+            }
+            mongo.updateFirst(doLease, update, PerfilJob.class);
+
+            log.error("[PerfilFila] ❌ Falha ao recalcular perfil do usuário {} (tentativa {}/{}): {}",
+                    job.getUserId(), tentativas, maxTentativas, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,189 @@
+package ai.startup.simulado.perfil;
+
+import ai.startup.simulado.adaptativo.ModuloAdaptativoPool;
+import ai.startup.simulado.questaosimulado.QuestaoClient;
+import ai.startup.simulado.questaosimulado.QuestaoResumo;
+import ai.startup.simulado.simulado.Simulado;
+import ai.startup.simulado.simulado.SimuladoRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Recalcula o perfil de um usuário depois de um ou mais finalizes.
+ * Os acumuladores por structure ficam persistidos; só entram as questões dos simulados
+ * ainda não agregados. Sem acumulador (primeiro finalize ou modo incremental desligado),
+ * reconstrói a partir de TODO o histórico do usuário (sem truncar).
+ */
+@Slf4j
+@Service
+public class PerfilRecalculoService {
+
+    private static final int TENTATIVAS_SAVE = 3;
+
+    private final SimuladoRepository simuladoRepo;
+    private final QuestaoClient questaoClient;
+    private final PerfilClient perfilClient;
+    private final PerfilEngine perfilEngine;
+    private final PerfilAcumuladoRepository perfilAcumuladoRepo;
+    private final ModuloAdaptativoPool moduloAdaptativoPool;
+    private final boolean perfilIncremental;
+
+    public PerfilRecalculoService(SimuladoRepository simuladoRepo,
+                                  QuestaoClient questaoClient,
+                                  PerfilClient perfilClient,
+                                  PerfilEngine perfilEngine,
+                                  PerfilAcumuladoRepository perfilAcumuladoRepo,
+                                  ModuloAdaptativoPool moduloAdaptativoPool,
+                                  @Value("${perfil.agregacao.incremental:true}") boolean perfilIncremental) {
+        this.simuladoRepo = simuladoRepo;
+        this.questaoClient = questaoClient;
+        this.perfilClient = perfilClient;
+        this.perfilEngine = perfilEngine;
+        this.perfilAcumuladoRepo = perfilAcumuladoRepo;
+        this.moduloAdaptativoPool = moduloAdaptativoPool;
+        this.perfilIncremental = perfilIncremental;
+    }
+
+    /**
+     * Agrega os simulados finalizados informados e envia o perfil atualizado para a API de Perfil.
+     * Idempotente: simulados já agregados são ignorados.
+     * Outro recálculo do mesmo usuário (lease expirado, fallback síncrono) que salve antes
+     * faz o save condicional ({@code @Version}) falhar: relê o acumulador e refaz.
+     */
+    public void recalcular(String userId, Collection<String> simuladoIds, String bearer) {
+        // um único "agora" por finalize: cooldown e updated_at usam o mesmo instante
+        LocalDateTime agora = LocalDateTime.now();
+        long agoraEpoch = PerfilDenso.epoch(agora);
+
+        PerfilDenso denso;
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                denso = acumular(userId, simuladoIds, bearer, agora, agoraEpoch);
+                break;
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                if (tentativa >= TENTATIVAS_SAVE) throw e;
+                log.warn("[PerfilRecalculo] Acumulador do usuário {} alterado por outro recálculo, refazendo ({}/{})",
+                        userId, tentativa, TENTATIVAS_SAVE);
+            }
+        }
+
+        // Template COMPLETO preenchido com os acumuladores (+ last_seen_at_s e missed_two_sessions)
+        Map<String, TopicDTO> topicsAgregado = perfilEngine.montarPerfil(denso, new PerfilEngine.Contexto(null, agoraEpoch));
+
+        // Atualiza Perfil na API
+        var perfilPayload = new PerfilCreateDTO(userId, topicsAgregado);
+        perfilClient.atualizarPerfilPorUsuario(bearer, userId, perfilPayload);
+
+        // módulos adaptativos pré-gerados com o perfil antigo deixam de valer
+        moduloAdaptativoPool.invalidar(userId);
+    }
+
+    /** Lê o acumulador, soma os simulados novos e salva (condicional à versão lida). */
+    private PerfilDenso acumular(String userId, Collection<String> simuladoIds, String bearer,
+                                 LocalDateTime agora, long agoraEpoch) {
+        PerfilAcumulado acumulado = perfilAcumuladoRepo.findByUserId(userId).orElse(null);
+        if (acumulado != null && acumulado.getVersao() == null) {
+            perfilAcumuladoRepo.inicializarVersao(acumulado.getId());
+            acumulado = perfilAcumuladoRepo.findByUserId(userId).orElse(null);
+        }
+
+        PerfilDenso denso;
+        if (acumulado == null || !perfilIncremental) {
+            denso = reconstruirAcumulado(userId, bearer, acumulado, agoraEpoch);
+            acumulado = denso.acumulado();
+        } else {
+            denso = perfilEngine.carregar(acumulado);
+
+            // simulados ainda não agregados, na ordem em que foram feitos
+            Set<String> jaAgregados = acumulado.getSimuladosAgregados();
+            List<Simulado> novos = new ArrayList<>();
+            for (var sx : simuladoRepo.findAllById(simuladoIds)) {
+                if (!jaAgregados.contains(sx.getId())) novos.add(sx);
+            }
+            novos.sort(Comparator.comparing(Simulado::getData, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+            for (var sim : novos) {
+                var questoesSimulado = questaoClient.listarResumoPorSimulado(bearer, sim.getId());
+                if (questoesSimulado == null) questoesSimulado = List.of();
+
+                Map<String, Long> simIdToDate = new HashMap<>();
+                if (sim.getData() != null) simIdToDate.put(sim.getId(), PerfilDenso.epoch(sim.getData()));
+                perfilEngine.agregarQuestoes(denso, questoesSimulado, new PerfilEngine.Contexto(simIdToDate, agoraEpoch));
+
+                // este simulado passa a ser o último finalizado
+                acumulado.setSubskillsPenultimo(acumulado.getSubskillsUltimo());
+                acumulado.setSubskillsUltimo(perfilEngine.subskillsDoSimulado(questoesSimulado, sim.getId()));
+                acumulado.setUltimoSimuladoId(sim.getId());
+                jaAgregados.add(sim.getId());
+                log.info("[PerfilRecalculo] Perfil incremental: {} questões do simulado {}", questoesSimulado.size(), sim.getId());
+            }
+        }
+        denso.gravar();
+        acumulado.setUpdatedAt(agora);
+        perfilAcumuladoRepo.save(acumulado);
+        return denso;
+    }
+
+    /**
+     * Reconstrói os acumuladores a partir de TODO o histórico do usuário.
+     * Só entram questões de simulados FINALIZADOS (os em aberto serão agregados quando finalizarem).
+     */
+    private PerfilDenso reconstruirAcumulado(String userId, String bearer, PerfilAcumulado existente, long agoraEpoch) {
+        var todasQuestoesUsuario = questaoClient.listarPorUsuario(bearer, userId);
+        if (todasQuestoesUsuario == null) {
+            todasQuestoesUsuario = new ArrayList<>();
+        }
+
+        var simuladosUsuario = simuladoRepo.findByIdUsuario(userId, Sort.by(Sort.Direction.DESC, "data"));
+
+        Map<String, Long> simIdToDate = new HashMap<>();
+        Set<String> finalizados = new HashSet<>();
+        for (var sx : simuladosUsuario) {
+            if (sx.getData() != null) simIdToDate.put(sx.getId(), PerfilDenso.epoch(sx.getData()));
+            if ("FINALIZADO".equalsIgnoreCase(sx.getStatus())) finalizados.add(sx.getId());
+        }
+        List<Simulado> ult2Finalizados = simuladosUsuario.stream()
+                .filter(sx -> "FINALIZADO".equalsIgnoreCase(sx.getStatus()))
+                .limit(2)
+                .toList();
+
+        Set<String> subsUlt1 = new HashSet<>();
+        Set<String> subsUlt2 = new HashSet<>();
+        if (ult2Finalizados.size() >= 1) {
+            subsUlt1 = perfilEngine.subskillsDoSimulado(todasQuestoesUsuario, ult2Finalizados.get(0).getId());
+        }
+        if (ult2Finalizados.size() >= 2) {
+            subsUlt2 = perfilEngine.subskillsDoSimulado(todasQuestoesUsuario, ult2Finalizados.get(1).getId());
+        }
+
+        List<QuestaoResumo> questoesFinalizadas = todasQuestoesUsuario.stream()
+                .filter(q -> finalizados.contains(q.idFormulario()))
+                .toList();
+
+        PerfilAcumulado acumulado = new PerfilAcumulado();
+        if (existente != null) {
+            // sobrescreve o documento do usuário, condicional à versão lida
+            acumulado.setId(existente.getId());
+            acumulado.setVersao(existente.getVersao());
+        }
+        acumulado.setUserId(userId);
+        acumulado.setSubskillsUltimo(subsUlt1);
+        acumulado.setSubskillsPenultimo(subsUlt2);
+        acumulado.setUltimoSimuladoId(ult2Finalizados.isEmpty() ? null : ult2Finalizados.get(0).getId());
+        acumulado.setSimuladosAgregados(finalizados);
+
+        PerfilDenso denso = perfilEngine.carregar(acumulado);
+        perfilEngine.agregarQuestoes(denso, questoesFinalizadas, new PerfilEngine.Contexto(simIdToDate, agoraEpoch));
+
+        log.info("[PerfilRecalculo] Perfil reconstruído a partir de {} questões do histórico", questoesFinalizadas.size());
+        return denso;
+    }
+}
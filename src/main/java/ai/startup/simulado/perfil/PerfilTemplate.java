@@ -0,0 +1,121 @@
+package ai.startup.simulado.perfil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template de perfil compilado (profile_template.json lido uma vez).
+ * Cada structure do catálogo tem um índice denso 0..tamanho()-1; as structures de uma
+ * subskill ficam contíguas em [inicio, fim). Nomes internados. Imutável: é compartilhado
+ * entre finalizes em paralelo.
+ */
+public final class PerfilTemplate {
+
+    /** Subskill do template e a faixa de índices das suas structures. */
+    public record Subskill(String topic, String nome, long totalEstruturas, int inicio, int fim) {}
+
+    private final List<String> topics;
+    private final List<Subskill> subskills;
+    private final String[] topicDe;
+    private final String[] subskillDe;
+    private final String[] structureDe;
+    private final Map<String, Map<String, Map<String, Integer>>> indice;
+
+    private PerfilTemplate(List<String> topics, List<Subskill> subskills,
+                           List<String> topicDe, List<String> subskillDe, List<String> structureDe,
+                           Map<String, Map<String, Map<String, Integer>>> indice) {
+        this.topics = List.copyOf(topics);
+        this.subskills = List.copyOf(subskills);
+        this.topicDe = topicDe.toArray(String[]::new);
+        this.subskillDe = subskillDe.toArray(String[]::new);
+        this.structureDe = structureDe.toArray(String[]::new);
+        this.indice = indice;
+    }
+
+    /** Compila o mapa "topics" do template. */
+    @SuppressWarnings("unchecked")
+    public static PerfilTemplate compilar(Map<String, Object> topicsRaw) {
+        List<String> topics = new ArrayList<>();
+        List<Subskill> subskills = new ArrayList<>();
+        List<String> topicDe = new ArrayList<>();
+        List<String> subskillDe = new ArrayList<>();
+        List<String> structureDe = new ArrayList<>();
+        Map<String, Map<String, Map<String, Integer>>> indice = new LinkedHashMap<>();
+
+        if (topicsRaw != null) {
+            topicsRaw.forEach((topicNome, topicObj) -> {
+                String topic = topicNome.intern();
+                topics.add(topic);
+                Map<String, Map<String, Integer>> porSubskill = new LinkedHashMap<>();
+
+                Map<String, Object> subsRaw = topicObj instanceof Map<?, ?> m
+                        ? (Map<String, Object>) m.get("subskills") : null;
+                if (subsRaw != null) {
+                    subsRaw.forEach((subNome, subObj) -> {
+                        String sub = subNome.intern();
+                        Map<String, Object> subMap = subObj instanceof Map<?, ?> m ? (Map<String, Object>) m : Map.of();
+                        Map<String, Object> structs = (Map<String, Object>) subMap.get("structures");
+
+                        int inicio = structureDe.size();
+                        Map<String, Integer> porStructure = new LinkedHashMap<>();
+                        if (structs != null) {
+                            for (String stNome : structs.keySet()) {
+                                String st = stNome.intern();
+                                porStructure.put(st, structureDe.size());
+                                topicDe.add(topic);
+                                subskillDe.add(sub);
+                                structureDe.add(st);
+                            }
+                        }
+                        int fim = structureDe.size();
+
+                        long total = subMap.get("total_estruturas_s") instanceof Number n ? n.longValue() : (long) (fim - inicio);
+                        subskills.add(new Subskill(topic, sub, total, inicio, fim));
+                        porSubskill.put(sub, Collections.unmodifiableMap(porStructure));
+                    });
+                }
+                indice.put(topic, Collections.unmodifiableMap(porSubskill));
+            });
+        }
+        return new PerfilTemplate(topics, subskills, topicDe, subskillDe, structureDe, Collections.unmodifiableMap(indice));
+    }
+
+    /** Número de structures do catálogo. */
+    public int tamanho() {
+        return structureDe.length;
+    }
+
+    public List<String> topics() {
+        return topics;
+    }
+
+    /** Subskills na ordem do template. */
+    public List<Subskill> subskills() {
+        return subskills;
+    }
+
+    public String topic(int indice) {
+        return topicDe[indice];
+    }
+
+    public String subskill(int indice) {
+        return subskillDe[indice];
+    }
+
+    public String structure(int indice) {
+        return structureDe[indice];
+    }
+
+    /** Índice denso da structure, ou -1 se ela não está no template. */
+    public int indice(String topic, String subskill, String structure) {
+        var porSubskill = indice.get(topic);
+        if (porSubskill == null) return -1;
+        var porStructure = porSubskill.get(subskill);
+        if (porStructure == null) return -1;
+        Integer i = porStructure.get(structure);
+        return i == null ? -1 : i;
+    }
+}
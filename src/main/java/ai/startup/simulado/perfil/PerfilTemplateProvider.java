@@ -1,66 +1,80 @@
 package ai.startup.simulado.perfil;
 
 import ai.startup.simulado.support.TemplateLoader;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Template de perfil compilado uma vez na subida ({@link PerfilTemplate}).
+ * Se o arquivo mudar (ex.: {@code perfil.template.local=file:/etc/simulado/profile_template.json}),
+ * é recompilado na próxima verificação; um arquivo inválido mantém o template anterior.
+ */
+@Slf4j
 @Component
 public class PerfilTemplateProvider {
     private final TemplateLoader templateLoader;
+    private final Resource recurso;
 
-    public PerfilTemplateProvider(TemplateLoader templateLoader) {
+    private volatile PerfilTemplate template;
+    private volatile long ultimaAlteracao;
+
+    public PerfilTemplateProvider(TemplateLoader templateLoader,
+                                  ResourceLoader resourceLoader,
+                                  @Value("${perfil.template.local:classpath:templates/profile_template.json}") String local) {
         this.templateLoader = templateLoader;
+        this.recurso = resourceLoader.getResource(local);
     }
 
-    /** Retorna o mapa completo de topics/subskills/structures do template, como DTOs zerados */
-    public Map<String, TopicDTO> getTopicsTemplate(String userId) {
-        Map<String, Object> raw = templateLoader.loadProfileTemplate(userId);
-        // raw.get("topics") é um Map<String,Object> com a árvore do template
-        Map<String, Object> topicsRaw = (Map<String, Object>) raw.get("topics");
-        return mapRawTopicsToDTO(topicsRaw);
+    @PostConstruct
+    void iniciar() {
+        recarregar();
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, TopicDTO> mapRawTopicsToDTO(Map<String, Object> topicsRaw) {
-        Map<String, TopicDTO> out = new HashMap<>();
-        if (topicsRaw == null) return out;
-
-        topicsRaw.forEach((topicName, topicObj) -> {
-            Map<String, Object> topicMap = (Map<String, Object>) topicObj;
-            Map<String, Object> subsRaw  = (Map<String, Object>) topicMap.get("subskills");
+    /** Template atual (topics/subskills/structures e índices). */
+    public PerfilTemplate getTemplate() {
+        return template;
+    }
 
-            Map<String, SubskillDTO> subsDTO = new HashMap<>();
-            if (subsRaw != null) {
-                subsRaw.forEach((subName, subObj) -> {
-                    Map<String, Object> subMap  = (Map<String, Object>) subObj;
-                    Map<String, Object> structs = (Map<String, Object>) subMap.get("structures");
+    /** Recompila o template se o arquivo mudou desde a última carga. */
+    @Scheduled(fixedDelayString = "${perfil.template.recarga-ms:30000}")
+    public void verificarAlteracao() {
+        long alteracao = alteradoEm();
+        if (alteracao != 0L && alteracao != ultimaAlteracao) {
+            try {
+                recarregar();
+            } catch (Exception e) {
+                log.error("[PerfilTemplate] ❌ Template alterado é inválido, mantendo o anterior: {}", e.getMessage());
+                ultimaAlteracao = alteracao; // só tenta de novo na próxima alteração
+            }
+        }
+    }
 
-                    Map<String, StructureDTO> stDTOs = new HashMap<>();
-                    if (structs != null) {
-                        structs.forEach((stName, __) -> {
-                            stDTOs.put(stName, new StructureDTO(
-                                    50, 0L, 0L, 0.0, 0.0,
-                                    false, false, false,
-                                    0L, 0L,
-                                    "easy", 0, null
-                            ));
-                        });
-                    }
+    @SuppressWarnings("unchecked")
+    private void recarregar() {
+        long alteracao = alteradoEm();
+        Map<String, Object> raw = templateLoader.loadProfileTemplate(recurso);
+        PerfilTemplate novo = PerfilTemplate.compilar((Map<String, Object>) raw.get("topics"));
+        if (novo.tamanho() == 0) {
+            throw new IllegalStateException("profile_template.json sem structures");
+        }
+        template = novo;
+        ultimaAlteracao = alteracao;
+        log.info("[PerfilTemplate] Template carregado: {} topics, {} subskills, {} structures",
+                novo.topics().size(), novo.subskills().size(), novo.tamanho());
+    }
 
-                    Long total = subMap.get("total_estruturas_s") instanceof Number n ? n.longValue() : (long)stDTOs.size();
-                    subsDTO.put(subName, new SubskillDTO(
-                            0L, 0L, 0.0, 0.0, null,
-                            null,
-                            false, false, false,
-                            0L, total,
-                            stDTOs
-                    ));
-                });
-            }
-            out.put(topicName, new TopicDTO(subsDTO));
-        });
-        return out;
+    private long alteradoEm() {
+        try {
+            return recurso.lastModified();
+        } catch (Exception e) {
+            return 0L; // recurso dentro do jar: sem recarga
+        }
     }
 }
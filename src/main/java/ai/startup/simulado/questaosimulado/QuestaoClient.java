@@ -1,23 +1,64 @@
 package ai.startup.simulado.questaosimulado;
 
+import ai.startup.simulado.http.HttpClientConfig;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 @Service
 public class QuestaoClient {
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final TypeReference<List<Map<String,Object>>> LISTA_DE_MAPAS = new TypeReference<>() {};
+
     private final RestTemplate rt;
+    private final ObjectMapper objectMapper;
+    private final SmileFactory smileFactory = new SmileFactory();
     private final String base;
+    private final int deleteParalelismo;
+    private final boolean projecao;
+    private final boolean smile;
 
-    public QuestaoClient(RestTemplate rt, @Value("${api.questao.base}") String base) {
+    // a API de Questões não tem DELETE by-simulado: não tenta de novo a cada exclusão
+    private volatile boolean bulkDeleteIndisponivel;
+    // a API de Questões recusou ?fields=: passa a pedir o documento inteiro
+    private volatile boolean projecaoIndisponivel;
+
+    public QuestaoClient(@Qualifier(HttpClientConfig.QUESTAO) RestTemplate rt,
+                         ObjectMapper objectMapper,
+                         @Value("${api.questao.base}") String base,
+                         @Value("${api.questao.delete-paralelismo:8}") int deleteParalelismo,
+                         @Value("${api.questao.projecao:true}") boolean projecao,
+                         @Value("${api.questao.smile:true}") boolean smile) {
         this.rt = rt;
+        this.objectMapper = objectMapper;
         this.base = base;
+        this.deleteParalelismo = Math.max(1, deleteParalelismo);
+        this.projecao = projecao;
+        this.smile = smile;
     }
 
     // ===== Helpers =====
@@ -63,6 +104,22 @@ public class QuestaoClient {
         return resp.getBody();
     }
 
+    /**
+     * Questões de um simulado só com os {@code campos} pedidos (?fields=). Se a API ignorar
+     * a projeção, os Maps vêm completos — quem chama só lê os campos que pediu.
+     */
+    public List<Map<String,Object>> listarPorSimulado(String bearerToken, String idSimulado, Collection<String> campos) {
+        return listarProjetado(bearerToken, "/questoes/by-simulado/" + idSimulado, campos,
+                p -> p.nextToken() == null ? null : objectMapper.readValue(p, LISTA_DE_MAPAS),
+                "Falha ao listar questões por simulado.");
+    }
+
+    /** Questões de um simulado só com os campos que o perfil usa. */
+    public List<QuestaoResumo> listarResumoPorSimulado(String bearerToken, String idSimulado) {
+        return listarProjetado(bearerToken, "/questoes/by-simulado/" + idSimulado, QuestaoResumo.CAMPOS,
+                QuestaoResumo::lerLista, "Falha ao listar questões por simulado.");
+    }
+
     public void deletar(String bearerToken, String idQuestao) {
         var url = base + "/questoes/" + idQuestao;
         var headers = bearerHeaders(bearerToken);
@@ -72,6 +129,69 @@ public class QuestaoClient {
         }
     }
 
+    /**
+     * Exclui todas as questões de um simulado numa chamada só (DELETE /questoes/by-simulado/{id}).
+     * @return false se a API de Questões não oferece o endpoint (quem chama usa {@link #deletarTodas})
+     */
+    public boolean deletarPorSimulado(String bearerToken, String idSimulado) {
+        if (bulkDeleteIndisponivel) return false;
+
+        var url = base + "/questoes/by-simulado/" + idSimulado;
+        var headers = bearerHeaders(bearerToken);
+        try {
+            var resp = rt.exchange(url, HttpMethod.DELETE, new HttpEntity<>(headers), Void.class);
+            if (!resp.getStatusCode().is2xxSuccessful()) {
+                throw new ResponseStatusException(resp.getStatusCode(), "Falha ao deletar questões do simulado.");
+            }
+            return true;
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed e) {
+            bulkDeleteIndisponivel = true;
+            return false;
+        } catch (HttpServerErrorException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_IMPLEMENTED) throw e;
+            bulkDeleteIndisponivel = true;
+            return false;
+        }
+    }
+
+    /**
+     * Exclui as questões uma a uma, em paralelo (virtual threads, no máximo
+     * {@code api.questao.delete-paralelismo} chamadas simultâneas).
+     * Uma falha não interrompe as demais.
+     * @return id da questão -> mensagem de erro, só das que falharam (vazio = tudo excluído)
+     */
+    public Map<String,String> deletarTodas(String bearerToken, List<String> idsQuestoes) {
+        Map<String,String> falhas = new LinkedHashMap<>();
+        if (idsQuestoes == null || idsQuestoes.isEmpty()) return falhas;
+
+        Semaphore vagas = new Semaphore(deleteParalelismo);
+        List<Future<?>> futures = new ArrayList<>(idsQuestoes.size());
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String id : idsQuestoes) {
+                futures.add(executor.submit(() -> {
+                    vagas.acquire();
+                    try {
+                        deletar(bearerToken, id);
+                    } finally {
+                        vagas.release();
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    falhas.put(idsQuestoes.get(i), e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    falhas.put(idsQuestoes.get(i), "interrompido");
+                }
+            }
+        }
+        return falhas;
+    }
+
     // ===== NOVOS =====
 
     /** Atualiza uma questão existente (PUT /questoes/{id}) */
@@ -107,19 +227,60 @@ public class QuestaoClient {
         return resp.getBody();
     }
 
-    /** Lista todas as questões de um usuário (GET /questoes/by-usuario/{idUsuario}) */
-    public List<Map<String,Object>> listarPorUsuario(String bearerToken, String idUsuario) {
-        var url = base + "/questoes/by-usuario/" + idUsuario;
-        var headers = bearerHeaders(bearerToken);
-        var resp = rt.exchange(
-                url,
+    /**
+     * Lista todas as questões de um usuário (GET /questoes/by-usuario/{idUsuario}), só com os
+     * campos que o perfil usa. O histórico inteiro vem numa resposta só: o corpo é lido em
+     * streaming e os campos de texto (enunciado, soluções, dicas, figuras) são pulados sem virar objeto.
+     */
+    public List<QuestaoResumo> listarPorUsuario(String bearerToken, String idUsuario) {
+        return listarProjetado(bearerToken, "/questoes/by-usuario/" + idUsuario, QuestaoResumo.CAMPOS,
+                QuestaoResumo::lerLista, "Falha ao listar questões por usuário.");
+    }
+
+    @FunctionalInterface
+    private interface Leitor<T> {
+        T ler(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * GET com ?fields= (se habilitado) e Accept Smile + JSON; o corpo é lido em streaming
+     * pelo formato que a API respondeu (Content-Type). Um 400 com a projeção é repetido
+     * sem ela; se aí der certo, a projeção fica desligada até o restart.
+     */
+    private <T> T listarProjetado(String bearerToken, String caminho, Collection<String> campos, Leitor<T> leitor, String erro) {
+        boolean comCampos = projecao && !projecaoIndisponivel && campos != null && !campos.isEmpty();
+        if (!comCampos) return listar(bearerToken, caminho, null, leitor, erro);
+        try {
+            return listar(bearerToken, caminho, campos, leitor, erro);
+        } catch (HttpClientErrorException.BadRequest e) {
+            T semProjecao = listar(bearerToken, caminho, null, leitor, erro);
+            projecaoIndisponivel = true;
+            return semProjecao;
+        }
+    }
+
+    private <T> T listar(String bearerToken, String caminho, Collection<String> campos, Leitor<T> leitor, String erro) {
+        var uri = UriComponentsBuilder.fromUriString(base + caminho);
+        if (campos != null) uri.queryParam("fields", String.join(",", campos));
+        return rt.execute(
+                uri.build().toUri(),
                 HttpMethod.GET,
-                new HttpEntity<>(headers),
-                new ParameterizedTypeReference<List<Map<String,Object>>>() {}
+                req -> {
+                    req.getHeaders().set("Authorization", bearerToken);
+                    req.getHeaders().setAccept(smile ? List.of(SMILE, MediaType.APPLICATION_JSON) : List.of(MediaType.APPLICATION_JSON));
+                },
+                resp -> {
+                    if (!resp.getStatusCode().is2xxSuccessful()) {
+                        throw new ResponseStatusException(resp.getStatusCode(), erro);
+                    }
+                    MediaType tipo = resp.getHeaders().getContentType();
+                    JsonFactory formato = tipo != null && SMILE.isCompatibleWith(tipo) ? smileFactory : objectMapper.getFactory();
+                    try (var parser = formato.createParser(resp.getBody())) {
+                        return leitor.ler(parser);
+                    } catch (IOException e) {
+                        throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, erro, e);
+                    }
+                }
         );
-        if (!resp.getStatusCode().is2xxSuccessful()) {
-            throw new ResponseStatusException(resp.getStatusCode(), "Falha ao listar questões por usuário.");
-        }
-        return resp.getBody();
     }
 }
@@ -0,0 +1,91 @@
+package ai.startup.simulado.questaosimulado;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Só os campos de uma questão que a agregação do perfil lê.
+ * Enunciado, alternativas, soluções, dicas e figuras ficam de fora (são a maior parte do JSON).
+ */
+public record QuestaoResumo(
+        String topic,
+        String subskill,
+        String structure,
+        String difficulty,
+        String alternativaMarcada,
+        String correctOption,
+        boolean dica,
+        boolean solucao,
+        String idFormulario
+) {
+
+    /** Campos pedidos à API de Questões (?fields=). */
+    public static final List<String> CAMPOS = List.of(
+            "topic", "subskill", "structure", "difficulty",
+            "alternativa_marcada", "correct_option", "dica", "solucao", "id_formulario");
+
+    /**
+     * Lê um array JSON de questões direto do parser, sem montar os campos ignorados
+     * (objetos e arrays são pulados com skipChildren; textos longos não viram String).
+     * @return null se a resposta for {@code null}
+     */
+    static List<QuestaoResumo> lerLista(JsonParser p) throws IOException {
+        JsonToken t = p.nextToken();
+        if (t == null || t == JsonToken.VALUE_NULL) return null;
+        if (t != JsonToken.START_ARRAY) throw new IOException("Esperado array de questões, veio " + t);
+
+        List<QuestaoResumo> out = new ArrayList<>();
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            out.add(lerQuestao(p));
+        }
+        return out;
+    }
+
+    private static QuestaoResumo lerQuestao(JsonParser p) throws IOException {
+        String topic = null, subskill = null, structure = null, difficulty = null;
+        String marcada = null, correta = null, idFormulario = null;
+        boolean dica = false, solucao = false;
+
+        String campo;
+        while ((campo = p.nextFieldName()) != null) {
+            JsonToken v = p.nextToken();
+            switch (campo) {
+                case "topic" -> topic = texto(p, v);
+                case "subskill" -> subskill = texto(p, v);
+                case "structure" -> structure = texto(p, v);
+                case "difficulty" -> difficulty = texto(p, v);
+                case "alternativa_marcada" -> marcada = texto(p, v);
+                case "correct_option" -> correta = texto(p, v);
+                case "id_formulario" -> idFormulario = texto(p, v);
+                case "dica" -> dica = verdadeiro(p, v);
+                case "solucao" -> solucao = verdadeiro(p, v);
+                default -> p.skipChildren();
+            }
+        }
+        return new QuestaoResumo(topic, subskill, structure, difficulty, marcada, correta, dica, solucao, idFormulario);
+    }
+
+    // escalar como texto (como o toString() do valor desserializado); objeto/array = null
+    private static String texto(JsonParser p, JsonToken v) throws IOException {
+        if (v == JsonToken.VALUE_NULL) return null;
+        if (v.isStructStart()) {
+            p.skipChildren();
+            return null;
+        }
+        return p.getText();
+    }
+
+    // só o literal true conta (como Boolean.TRUE.equals no valor desserializado)
+    private static boolean verdadeiro(JsonParser p, JsonToken v) throws IOException {
+        if (v.isStructStart()) p.skipChildren();
+        return v == JsonToken.VALUE_TRUE;
+    }
+}
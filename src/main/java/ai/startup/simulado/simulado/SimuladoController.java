@@ -1,5 +1,7 @@
 package ai.startup.simulado.simulado;
 
+import ai.startup.simulado.idempotencia.IdempotenciaService;
+
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.servlet.http.HttpServletRequest;
@@ -15,7 +17,11 @@ import java.util.Map;
 public class SimuladoController {
 
     private final SimuladoService service;
-    public SimuladoController(SimuladoService service) { this.service = service; }
+    private final IdempotenciaService idempotencia;
+    public SimuladoController(SimuladoService service, IdempotenciaService idempotencia) {
+        this.service = service;
+        this.idempotencia = idempotencia;
+    }
 
     // CRUD
     @SecurityRequirement(name = "bearerAuth")
@@ -47,16 +53,22 @@ public class SimuladoController {
     @SecurityRequirement(name = "bearerAuth")
     @Operation(summary = "Inicia simulado adaptativo e retorna simulado + questões")
     @PostMapping("/simulados/adaptativo")
-    public ResponseEntity<SimuladoComQuestoesDTO> iniciarAdaptativo(HttpServletRequest req) {
-        return ResponseEntity.ok(service.iniciarAdaptativo(req));
+    public ResponseEntity<SimuladoComQuestoesDTO> iniciarAdaptativo(
+            @RequestHeader(value = IdempotenciaService.HEADER, required = false) String idempotencyKey,
+            HttpServletRequest req) {
+        return ResponseEntity.ok(idempotencia.executar("adaptativo", idempotencyKey, req, null,
+                SimuladoComQuestoesDTO.class, () -> service.iniciarAdaptativo(req)));
     }
 
     // Iniciar simulado original (gera 44 questões em 1 chamada)
     @SecurityRequirement(name = "bearerAuth")
     @Operation(summary = "Inicia simulado original e retorna simulado + questões")
     @PostMapping("/simulados/original")
-    public ResponseEntity<SimuladoComQuestoesDTO> iniciarOriginal(HttpServletRequest req) {
-        return ResponseEntity.ok(service.iniciarOriginal(req));
+    public ResponseEntity<SimuladoComQuestoesDTO> iniciarOriginal(
+            @RequestHeader(value = IdempotenciaService.HEADER, required = false) String idempotencyKey,
+            HttpServletRequest req) {
+        return ResponseEntity.ok(idempotencia.executar("original", idempotencyKey, req, null,
+                SimuladoComQuestoesDTO.class, () -> service.iniciarOriginal(req)));
     }
 
     // Iniciar custom practice (questões personalizadas baseadas em seleções do MindMap)
@@ -65,9 +77,11 @@ public class SimuladoController {
     @PostMapping("/simulados/custom-practice")
     public ResponseEntity<SimuladoComQuestoesDTO> iniciarCustomPractice(
             @RequestBody ai.startup.simulado.custompractice.CustomPracticeRequestDTO request,
+            @RequestHeader(value = IdempotenciaService.HEADER, required = false) String idempotencyKey,
             HttpServletRequest req
     ) {
-        return ResponseEntity.ok(service.iniciarCustomPractice(request, req.getHeader("Authorization")));
+        return ResponseEntity.ok(idempotencia.executar("custom-practice", idempotencyKey, req, request,
+                SimuladoComQuestoesDTO.class, () -> service.iniciarCustomPractice(request, req.getHeader("Authorization"))));
     }
 
     // Carregar Módulo 2 de um simulado original adaptativo
@@ -85,12 +99,14 @@ public class SimuladoController {
         return ResponseEntity.ok(service.carregarModule2Original(simuladoId, examId, module1Correct, req.getHeader("Authorization")));
     }
 
-    // Finalizar simulado: calcula perfis e fecha
+    // Finalizar simulado: fecha e agenda o recálculo do perfil
     @SecurityRequirement(name = "bearerAuth")
     @PutMapping("/simulados/finalizar")
     public ResponseEntity<SimuladoDTO> finalizar(@RequestBody FinalizarSimuladoRequestFlat body,
+                                                @RequestHeader(value = IdempotenciaService.HEADER, required = false) String idempotencyKey,
                                                 HttpServletRequest req) {
-        return ResponseEntity.ok(service.finalizarAtualizandoTudo(body, req));
+        return ResponseEntity.ok(idempotencia.executar("finalizar", idempotencyKey, req, body,
+                SimuladoDTO.class, () -> service.finalizarAtualizandoTudo(body, req)));
     }
 
     // Listagens por usuário
@@ -116,4 +132,12 @@ public class SimuladoController {
             HttpServletRequest req) {
         return ResponseEntity.ok(service.getUserStats(userId, req.getHeader("Authorization")));
     }
+
+    // Situação do recálculo de perfil (assíncrono, após o finalize)
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "Retorna o status do recálculo assíncrono do perfil do usuário")
+    @GetMapping("/simulados/by-usuario/{userId}/perfil-status")
+    public ResponseEntity<Map<String, Object>> statusPerfil(@PathVariable String userId) {
+        return ResponseEntity.ok(service.statusPerfil(userId));
+    }
 }
\ No newline at end of file
@@ -1,20 +1,21 @@
 package ai.startup.simulado.simulado;
 
+import ai.startup.simulado.adaptativo.ModuloAdaptativoPool;
+import ai.startup.simulado.adaptativo.ModuloPreGerado;
 import ai.startup.simulado.client.ModeloClient;
-import ai.startup.simulado.perfil.PerfilClient;
-import ai.startup.simulado.perfil.PerfilCreateDTO;
-import ai.startup.simulado.perfil.PerfilTemplateProvider;
-import ai.startup.simulado.perfil.TopicDTO;
-import ai.startup.simulado.perfil.SubskillDTO;
-import ai.startup.simulado.perfil.StructureDTO;
+import ai.startup.simulado.http.CircuitBreaker;
+import ai.startup.simulado.perfil.PerfilRecalculoFila;
+import ai.startup.simulado.perfil.PerfilRecalculoService;
 import ai.startup.simulado.questaosimulado.QuestaoClient;
 import ai.startup.simulado.questaosimulado.QuestaoUpdateDTO;
 import ai.startup.simulado.questaosimulado.QuestoesCreateItemDTO;
 import ai.startup.simulado.usuario.UsuarioClient;
-import ai.startup.simulado.usuario.UsuarioUpdateDTO;
+import ai.startup.simulado.wins.WinsLedger;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -22,7 +23,12 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.Comparator;
 import java.util.ArrayList;
 
@@ -30,35 +36,54 @@ import java.util.ArrayList;
 @Service
 public class SimuladoService {
 
+    // getUserStats só compara a alternativa marcada com a correta
+    private static final List<String> CAMPOS_SCORE = List.of("alternativa_marcada", "correct_option");
+
     private final SimuladoRepository repo;
     private final UsuarioClient usuarioClient;
     private final QuestaoClient questaoClient;
     private final ModeloClient modeloClient;
-    private final PerfilClient perfilClient;
-    private final PerfilTemplateProvider perfilTemplateProvider;
+    private final ModuloAdaptativoPool moduloAdaptativoPool;
+    private final CircuitBreaker modeloCircuitBreaker;
+    private final PerfilRecalculoService perfilRecalculoService;
+    private final PerfilRecalculoFila perfilRecalculoFila;
     private final ai.startup.simulado.custompractice.CustomPracticeService customPracticeService;
     private final ai.startup.simulado.originalexam.OriginalExamService originalExamService;
+    private final WinsLedger winsLedger;
+    private final boolean perfilAssincrono;
 
-    private transient Map<String, java.time.LocalDateTime> simIdToDateTmp;
-    private transient java.util.Set<String> subsUlt1Tmp;
-    private transient java.util.Set<String> subsUlt2Tmp;
+    // etapas independentes dos inícios (I/O bloqueante): uma virtual thread por etapa
+    private final ExecutorService inicioExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public SimuladoService(SimuladoRepository repo,
                            UsuarioClient usuarioClient,
                            QuestaoClient questaoClient,
                            ModeloClient modeloClient,
-                           PerfilClient perfilClient,
-                           PerfilTemplateProvider perfilTemplateProvider,
+                           ModuloAdaptativoPool moduloAdaptativoPool,
+                           CircuitBreaker modeloCircuitBreaker,
+                           PerfilRecalculoService perfilRecalculoService,
+                           PerfilRecalculoFila perfilRecalculoFila,
                            ai.startup.simulado.custompractice.CustomPracticeService customPracticeService,
-                           ai.startup.simulado.originalexam.OriginalExamService originalExamService) {
+                           ai.startup.simulado.originalexam.OriginalExamService originalExamService,
+                           WinsLedger winsLedger,
+                           @Value("${perfil.recalculo.assincrono:true}") boolean perfilAssincrono) {
         this.repo = repo;
         this.usuarioClient = usuarioClient;
         this.questaoClient = questaoClient;
         this.modeloClient = modeloClient;
-        this.perfilClient = perfilClient;
-        this.perfilTemplateProvider = perfilTemplateProvider;
+        this.moduloAdaptativoPool = moduloAdaptativoPool;
+        this.modeloCircuitBreaker = modeloCircuitBreaker;
+        this.perfilRecalculoService = perfilRecalculoService;
+        this.perfilRecalculoFila = perfilRecalculoFila;
         this.customPracticeService = customPracticeService;
         this.originalExamService = originalExamService;
+        this.winsLedger = winsLedger;
+        this.perfilAssincrono = perfilAssincrono;
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        inicioExecutor.shutdown();
     }
 
     // ================= CRUD =================
@@ -99,69 +124,106 @@ public class SimuladoService {
     /** DELETE: também remove as questões do simulado na API de Questões */
     public void deletar(String id, String bearerToken) {
         if (!repo.existsById(id)) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Simulado não encontrado.");
-         try {
-            var qs = questaoClient.listarPorSimulado(bearerToken, id);
-            if (qs != null) {
-                for (var q : qs) {
-                    Object qid = q.get("id");
-                    if (qid != null) questaoClient.deletar(bearerToken, qid.toString());
+        Map<String,String> falhas;
+        try {
+            if (questaoClient.deletarPorSimulado(bearerToken, id)) {
+                falhas = Map.of();
+            } else {
+                // API de Questões sem exclusão em lote: uma chamada por questão, em paralelo
+                var qs = questaoClient.listarPorSimulado(bearerToken, id);
+                List<String> ids = new ArrayList<>();
+                if (qs != null) {
+                    for (var q : qs) {
+                        Object qid = q.get("id");
+                        if (qid != null) ids.add(qid.toString());
+                    }
                 }
+                falhas = questaoClient.deletarTodas(bearerToken, ids);
             }
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Falha ao excluir questões do simulado.", e);
         }
+        if (!falhas.isEmpty()) {
+            // mantém o simulado para que a exclusão possa ser repetida (as já excluídas não voltam)
+            log.warn("[Simulado] Exclusão parcial do simulado {}: {} questões falharam: {}", id, falhas.size(), falhas);
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY,
+                    "Falha ao excluir " + falhas.size() + " questões do simulado: " + falhas);
+        }
         repo.deleteById(id);
     }
 
     // ================= Início: ADAPTATIVO & ORIGINAL =================
 
-    /** Inicia simulado ADAPTATIVO (1 chamadas que já retorna ~44) */
+    /**
+     * Inicia simulado ADAPTATIVO (1 chamadas que já retorna ~44).
+     * Os wins são reservados no ledger local só depois de garantir o módulo (pool ou serviço de
+     * modelo disponível); sem módulo no pool, a geração (a etapa longa) corre em paralelo com o save
+     * do Simulado. Se algo falhar, cancela a geração, devolve o módulo retirado do pool, libera a
+     * reserva e compensa.
+     */
     public SimuladoComQuestoesDTO iniciarAdaptativo(HttpServletRequest req) {
         String bearer = req.getHeader("Authorization");
+        LocalDateTime saldoLidoEm = LocalDateTime.now();
         var user = usuarioClient.me(bearer);       // uma chamada só
         String userId = user.id();
 
-        if (user.wins() == null || user.wins() < 5) {
-            throw new ResponseStatusException(HttpStatus.PAYMENT_REQUIRED, "Saldo insuficiente de wins (mínimo 5).");
-        }
-
         // Verificar se há algum simulado em aberto (adaptativo, original ou custom practice)
-        List<Simulado> abertos = repo.findByIdUsuarioAndStatus(userId, "ABERTO");
-        if (!abertos.isEmpty()) {
-            Simulado aberto = abertos.get(0);
-            String tipoSimulado = aberto.getTipo();
-            String tipoFormatado = tipoSimulado.equals("ADAPTATIVO") ? "adaptativo" 
-                                  : tipoSimulado.equals("ORIGINAL") ? "original" 
-                                  : tipoSimulado.equals("CUSTOM_PRACTICE") ? "custom practice" 
-                                  : "simulado";
-            throw new ResponseStatusException(
-                HttpStatus.CONFLICT, 
-                String.format("Você já tem um %s em aberto. Finalize-o antes de começar outro practice.", tipoFormatado)
-            );
+        verificarSemSimuladoAberto(userId);
+
+        WinsLedger.Reserva reserva = null;
+        CompletableFuture<Simulado> simF = null;
+        Future<Map<String,Object>> moduloF = null;
+        ModuloPreGerado pronto = null;
+        List<Map<String,Object>> qsCriadas;
+        Simulado sim;
+        try {
+            // Pool de módulos pré-gerados: no hit o início não espera o serviço de modelo
+            pronto = moduloAdaptativoPool.retirar(userId);
+            // Sem módulo pronto e serviço de modelo fora: 503 antes de reservar os wins
+            if (pronto == null) modeloCircuitBreaker.verificar();
+
+            reserva = reservarWins(userId, user.wins(), saldoLidoEm, bearer);
+
+            if (pronto != null) {
+                moduloF = CompletableFuture.completedFuture(pronto.getModulo());
+            } else {
+                // submit (não supplyAsync): o cancel(true) interrompe a chamada ao modelo se o início falhar
+                moduloF = inicioExecutor.submit(() -> gerarModuloAdaptativo(userId));
+            }
+
+            simF = CompletableFuture.supplyAsync(() -> repo.save(Simulado.builder()
+                    .idUsuario(userId)
+                    .tipo("ADAPTATIVO")
+                    .data(LocalDateTime.now())
+                    .status("ABERTO")
+                    .faturaWins(5)
+                    .build()), inicioExecutor);
+
+            // save primeiro: se falhar, não espera a geração terminar para responder
+            sim = simF.join();
+            var todas  = mapModeloParaQuestoes(sim.getId(), userId, resultado(moduloF), 1);
+
+            try {
+                qsCriadas = questaoClient.criarQuestoes(bearer, todas);
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Falha ao criar questões.", e);
+            }
+        } catch (RuntimeException e) {
+            // a geração em voo não serve para mais nada; o módulo do pool volta para o próximo início
+            if (moduloF != null) moduloF.cancel(true);
+            devolverAoPool(pronto);
+            compensarInicio(reserva, concluido(simF));
+            throw causa(e);
         }
 
-        long novoSaldo = Math.max(0L, user.wins() - 5L);
-        UsuarioUpdateDTO debitoWins = new UsuarioUpdateDTO(
-                null, null, null, null, null, null, // nome, sobrenome, telefone, nascimento, email, cpf
-                null,                                // senha
-                novoSaldo,                           // wins (apenas este campo será aplicado)
-                null,                                // streaks
-                null,                                // xp
-                null                                 // permissao
-        );
-        usuarioClient.atualizar(bearer, userId, debitoWins);
-        
-        var sim = repo.save(Simulado.builder()
-                .idUsuario(userId)
-                .tipo("ADAPTATIVO")
-                .data(LocalDateTime.now())
-                .status("ABERTO")
-                .faturaWins(5)
-                .build());
-
-        Map<String,Object> modulo;
+        winsLedger.confirmar(reserva);
+        SimuladoDTO simuladoDTO = toDTO(sim);
+        return new SimuladoComQuestoesDTO(simuladoDTO, qsCriadas);
+    }
+
+    private Map<String,Object> gerarModuloAdaptativo(String userId) {
         try {
-            modulo = modeloClient.gerarModuloAdaptativo(userId);
+            return modeloClient.gerarModuloAdaptativo(userId);
         } catch (RuntimeException e) {
             // Re-lança com a mensagem detalhada do ModeloClient
             throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, e.getMessage(), e);
@@ -170,69 +232,30 @@ public class SimuladoService {
             throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, 
                 "Falha ao gerar módulos adaptativos: " + e.getMessage(), e);
         }
-
-        var todas  = mapModeloParaQuestoes(sim.getId(), userId, modulo, 1);
-
-        List<Map<String,Object>> qsCriadas;
-        try {
-            qsCriadas = questaoClient.criarQuestoes(bearer, todas);
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Falha ao criar questões.", e);
-        }
-
-        SimuladoDTO simuladoDTO = toDTO(sim);
-        return new SimuladoComQuestoesDTO(simuladoDTO, qsCriadas);
     }
 
-    /** Inicia simulado ORIGINAL (busca do banco de simulados fixos) */
+    /**
+     * Inicia simulado ORIGINAL (busca do banco de simulados fixos).
+     * A escolha do exam (só depende do userId) corre junto da checagem de simulado aberto;
+     * os wins são reservados no ledger local e, se algo falhar depois, a reserva é liberada.
+     */
     public SimuladoComQuestoesDTO iniciarOriginal(HttpServletRequest req) {
         String bearer = req.getHeader("Authorization");
+        LocalDateTime saldoLidoEm = LocalDateTime.now();
         var user = usuarioClient.me(bearer);       // uma chamada só
         String userId = user.id();
 
-        if (user.wins() == null || user.wins() < 5) {
-            throw new ResponseStatusException(HttpStatus.PAYMENT_REQUIRED, "Saldo insuficiente de wins (mínimo 5).");
-        }
+        // Buscar próximo simulado original não feito pelo usuário (em paralelo com a checagem de abertos)
+        var examF = CompletableFuture.supplyAsync(() -> originalExamService.selectNextExam(userId), inicioExecutor);
 
         // Verificar se há algum simulado em aberto (adaptativo, original ou custom practice)
-        List<Simulado> abertos = repo.findByIdUsuarioAndStatus(userId, "ABERTO");
-        if (!abertos.isEmpty()) {
-            Simulado aberto = abertos.get(0);
-            String tipoSimulado = aberto.getTipo();
-            String tipoFormatado = tipoSimulado.equals("ADAPTATIVO") ? "adaptativo" 
-                                  : tipoSimulado.equals("ORIGINAL") ? "original" 
-                                  : tipoSimulado.equals("CUSTOM_PRACTICE") ? "custom practice" 
-                                  : "simulado";
-            throw new ResponseStatusException(
-                HttpStatus.CONFLICT, 
-                String.format("Você já tem um %s em aberto. Finalize-o antes de começar outro practice.", tipoFormatado)
-            );
-        }
-
-        long novoSaldo = Math.max(0L, user.wins() - 5L);
-        UsuarioUpdateDTO debitoWins = new UsuarioUpdateDTO(
-                null, null, null, null, null, null, // nome, sobrenome, telefone, nascimento, email, cpf
-                null,                                // senha
-                novoSaldo,                           // wins (apenas este campo será aplicado)
-                null,                                // streaks
-                null,                                // xp
-                null                                 // permissao
-        );
-        usuarioClient.atualizar(bearer, userId, debitoWins);
-
-        var sim = repo.save(Simulado.builder()
-                .idUsuario(userId)
-                .tipo("ORIGINAL")
-                .data(LocalDateTime.now())
-                .status("ABERTO")
-                .faturaWins(5)
-                .build());
+        verificarSemSimuladoAberto(userId);
 
-        // Buscar próximo simulado original não feito pelo usuário
         Map<String, Object> nextExamData;
         try {
-            nextExamData = originalExamService.getNextExamForUser(userId);
-        } catch (Exception e) {
+            nextExamData = examF.join();
+        } catch (CompletionException ce) {
+            Throwable e = ce.getCause() != null ? ce.getCause() : ce;
             // Verificar se é porque completou todos os simulados
             if (e.getMessage() != null && e.getMessage().contains("MAIS_PROVAS_EM_BREVE")) {
                 throw new ResponseStatusException(
@@ -243,20 +266,41 @@ public class SimuladoService {
             throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Falha ao buscar simulado original.", e);
         }
 
-        // Mapear as questões do Módulo 1 para o formato esperado
-        var lista = mapOriginalExamModule1(sim.getId(), userId, nextExamData);
-        
-        log.info("[OriginalExam] 🔍 DEBUG - Questões mapeadas do M1: {}", lista.size());
-        log.info("[OriginalExam] 🔍 DEBUG - nextExamData.module_1 size: {}", 
-                 nextExamData.get("module_1") instanceof List ? ((List<?>)nextExamData.get("module_1")).size() : "não é lista");
+        var reserva = reservarWins(userId, user.wins(), saldoLidoEm, bearer);
 
+        Simulado sim = null;
+        List<QuestoesCreateItemDTO> lista;
         List<Map<String,Object>> qsCriadas;
         try {
-            qsCriadas = questaoClient.criarQuestoes(bearer, lista);
-            log.info("[OriginalExam] 🔍 DEBUG - Questões CRIADAS retornadas: {}", qsCriadas.size());
-        } catch (Exception e) {
-            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Falha ao criar questões.", e);
+            sim = repo.save(Simulado.builder()
+                    .idUsuario(userId)
+                    .tipo("ORIGINAL")
+                    .data(LocalDateTime.now())
+                    .status("ABERTO")
+                    .faturaWins(5)
+                    .build());
+
+            // Mapear as questões do Módulo 1 para o formato esperado
+            lista = mapOriginalExamModule1(sim.getId(), userId, nextExamData);
+            
+            log.info("[OriginalExam] 🔍 DEBUG - Questões mapeadas do M1: {}", lista.size());
+            log.info("[OriginalExam] 🔍 DEBUG - nextExamData.module_1 size: {}", 
+                     nextExamData.get("module_1") instanceof List ? ((List<?>)nextExamData.get("module_1")).size() : "não é lista");
+
+            try {
+                qsCriadas = questaoClient.criarQuestoes(bearer, lista);
+                log.info("[OriginalExam] 🔍 DEBUG - Questões CRIADAS retornadas: {}", qsCriadas.size());
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Falha ao criar questões.", e);
+            }
+        } catch (RuntimeException e) {
+            compensarInicio(reserva, sim);
+            throw causa(e);
         }
+        winsLedger.confirmar(reserva);
+
+        // Marcar como iniciado só depois que o simulado existe de fato
+        originalExamService.markNextExamAsStarted(userId, str(nextExamData.get("exam_id")));
 
         // Criar metadados para o frontend saber que é original adaptativo
         Map<String, Object> metadata = new HashMap<>();
@@ -271,6 +315,96 @@ public class SimuladoService {
         return new SimuladoComQuestoesDTO(simuladoDTO, qsCriadas, metadata);
     }
 
+    private void verificarSemSimuladoAberto(String userId) {
+        List<Simulado> abertos = repo.findByIdUsuarioAndStatus(userId, "ABERTO");
+        if (!abertos.isEmpty()) {
+            Simulado aberto = abertos.get(0);
+            String tipoSimulado = aberto.getTipo();
+            String tipoFormatado = tipoSimulado.equals("ADAPTATIVO") ? "adaptativo" 
+                                  : tipoSimulado.equals("ORIGINAL") ? "original" 
+                                  : tipoSimulado.equals("CUSTOM_PRACTICE") ? "custom practice" 
+                                  : "simulado";
+            throw new ResponseStatusException(
+                HttpStatus.CONFLICT, 
+                String.format("Você já tem um %s em aberto. Finalize-o antes de começar outro practice.", tipoFormatado)
+            );
+        }
+    }
+
+    /** Reserva o custo do início no ledger de wins (402 se o saldo não cobre). */
+    private WinsLedger.Reserva reservarWins(String userId, Long wins, LocalDateTime saldoLidoEm, String bearer) {
+        var reserva = winsLedger.reservar(userId, wins != null ? wins : 0L, saldoLidoEm, 5L, bearer);
+        if (reserva == null) {
+            throw new ResponseStatusException(HttpStatus.PAYMENT_REQUIRED, "Saldo insuficiente de wins (mínimo 5).");
+        }
+        return reserva;
+    }
+
+    /**
+     * Desfaz as etapas do início que chegaram a completar: libera a reserva de wins e remove
+     * o Simulado (senão ele ficaria ABERTO e bloquearia o próximo início).
+     */
+    private void compensarInicio(WinsLedger.Reserva reserva, Simulado sim) {
+        if (sim != null) {
+            try {
+                repo.deleteById(sim.getId());
+                log.warn("[Inicio] Simulado {} removido (início falhou)", sim.getId());
+            } catch (Exception e) {
+                log.error("[Inicio] ❌ Não foi possível remover o simulado {}: {}", sim.getId(), e.getMessage());
+            }
+        }
+
+        if (reserva == null) return; // falhou antes de reservar
+        try {
+            winsLedger.liberar(reserva);
+        } catch (Exception e) {
+            // a reserva expira sozinha e volta para o saldo
+            log.error("[Inicio] ❌ Não foi possível liberar a reserva de wins do usuário {}: {}",
+                    reserva.userId(), e.getMessage());
+        }
+    }
+
+    private void devolverAoPool(ModuloPreGerado pronto) {
+        if (pronto == null) return;
+        try {
+            moduloAdaptativoPool.devolver(pronto);
+        } catch (Exception e) {
+            log.error("[Inicio] ❌ Não foi possível devolver o módulo ao pool do usuário {}: {}",
+                    pronto.getUserId(), e.getMessage());
+        }
+    }
+
+    /** Resultado de uma etapa submetida ao inicioExecutor, com a exceção original da etapa. */
+    private static <T> T resultado(Future<T> etapa) {
+        try {
+            return etapa.get();
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Início interrompido.", e);
+        }
+    }
+
+    /** Espera a etapa em voo terminar; null se ela não chegou a completar. */
+    private static <T> T concluido(CompletableFuture<T> etapa) {
+        if (etapa == null) return null;
+        try {
+            return etapa.join();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /** Tira o CompletionException de volta para a exceção original da etapa. */
+    private static RuntimeException causa(RuntimeException e) {
+        if (e instanceof CompletionException && e.getCause() instanceof RuntimeException r) return r;
+        if (e instanceof CompletionException && e.getCause() != null) {
+            return new ResponseStatusException(HttpStatus.BAD_GATEWAY, e.getCause().getMessage(), e.getCause());
+        }
+        return e;
+    }
+
     /**
      * Inicia um Custom Practice delegando para o CustomPracticeService.
      * 
@@ -414,89 +548,23 @@ public class SimuladoService {
         sim.setStatus("FINALIZADO");
         repo.save(sim);
 
-        // 3) RECALCULAR PERFIL a partir de TODO o histórico do usuário
-        // OTIMIZAÇÃO: Limita a últimos 500 questões para evitar processar milhares
-        // Se necessário, pode ser processado de forma assíncrona
-        var todasQuestoesUsuario = questaoClient.listarPorUsuario(bearer, sim.getIdUsuario());
-        // Garante que não seja null e limita processamento para performance (últimas 500 questões)
-        if (todasQuestoesUsuario == null) {
-            todasQuestoesUsuario = new ArrayList<>();
-        }
-        int totalQuestoes = todasQuestoesUsuario.size();
-        if (totalQuestoes > 500) {
-            todasQuestoesUsuario = new ArrayList<>(todasQuestoesUsuario.subList(0, 500));
-            log.warn("[SimuladoService] Limitei processamento a 500 questões para performance. Total disponível: {}", totalQuestoes);
-        }
-
-        // 3.1) Carregar todos os simulados do usuário (datas e últimos finalizados)
-        // OTIMIZAÇÃO: Limita a últimos 50 simulados para performance
-        var simuladosUsuario = repo.findByIdUsuario(sim.getIdUsuario(),
-                Sort.by(Sort.Direction.DESC, "data"))
-                .stream()
-                .limit(50) // Limite para performance
-                .toList();
-
-        Map<String, LocalDateTime> simIdToDate = new HashMap<>();
-        for (var sx : simuladosUsuario) {
-            if (sx.getData() != null) simIdToDate.put(sx.getId(), sx.getData());
-        }
-        List<Simulado> ult2Finalizados = simuladosUsuario.stream()
-                .filter(sx -> "FINALIZADO".equalsIgnoreCase(sx.getStatus()))
-                .limit(2)
-                .toList();
-
-        Set<String> subsUlt1 = new HashSet<>();
-        Set<String> subsUlt2 = new HashSet<>();
-        if (ult2Finalizados.size() >= 1) {
-            String ult1Id = ult2Finalizados.get(0).getId();
-            for (var q : todasQuestoesUsuario) {
-                if (ult1Id.equals(String.valueOf(q.get("id_formulario")))) {
-                    String sub = str(q.get("subskill"));
-                    if (sub != null) subsUlt1.add(sub);
-                }
-            }
-        }
-        if (ult2Finalizados.size() >= 2) {
-            String ult2Id = ult2Finalizados.get(1).getId();
-            for (var q : todasQuestoesUsuario) {
-                if (ult2Id.equals(String.valueOf(q.get("id_formulario")))) {
-                    String sub = str(q.get("subskill"));
-                    if (sub != null) subsUlt2.add(sub);
-                }
-            }
+        // 3) RECALCULAR PERFIL
+        // Assíncrono por padrão: o job vai para a fila durável (perfil_jobs) e a resposta
+        // volta sem esperar o recálculo; GET /simulados/by-usuario/{id}/perfil-status acompanha.
+        if (!perfilAssincrono || !perfilRecalculoFila.enfileirar(sim.getIdUsuario(), sim.getId())) {
+            perfilRecalculoService.recalcular(sim.getIdUsuario(), List.of(sim.getId()), bearer);
         }
 
-        // 3.2) Carregar template COMPLETO
-        Map<String, TopicDTO> template = perfilTemplateProvider.getTopicsTemplate(sim.getIdUsuario());
-
-        // 3.3) Clonar e zerar (mantendo catálogo)
-        Map<String, TopicDTO> topicsAgregado = deepCloneAndZero(template);
-
-        // 3.4) Agregar com timestamps e níveis
-        // (armazeno em campos temporários para usar dentro dos helpers)
-        this.simIdToDateTmp = simIdToDate;
-        this.subsUlt1Tmp = subsUlt1;
-        this.subsUlt2Tmp = subsUlt2;
-
-        agregarQuestoesNoPerfil(topicsAgregado, todasQuestoesUsuario);
-
-        // 3.5) Derivar last_seen_at_s e missed_two_sessions
-        fecharSubskills(topicsAgregado);
-
-        // limpando auxiliares
-        this.simIdToDateTmp = null;
-        this.subsUlt1Tmp = null;
-        this.subsUlt2Tmp = null;
-
-        // 3.6) Atualiza Perfil na API
-        var perfilPayload = new PerfilCreateDTO(sim.getIdUsuario(), topicsAgregado);
-        perfilClient.atualizarPerfilPorUsuario(bearer, sim.getIdUsuario(), perfilPayload);
-
         return toDTO(sim);
     }
 
         // ================= Listagens por usuário =================
 
+        /** Situação do recálculo assíncrono do perfil do usuário */
+        public Map<String, Object> statusPerfil(String idUsuario) {
+            return perfilRecalculoFila.status(idUsuario);
+        }
+
         public List<SimuladoDTO> listarPorUsuario(String idUsuario) {
             // OTIMIZAÇÃO: Limita a últimos 100 simulados para evitar retornar milhares
             // Frontend pode paginar se necessário
@@ -554,7 +622,7 @@ public class SimuladoService {
                 var scores = finalizadosLimitados.parallelStream()
                         .map(sim -> {
                             try {
-                                var questoes = questaoClient.listarPorSimulado(bearerToken, sim.getId());
+                                var questoes = questaoClient.listarPorSimulado(bearerToken, sim.getId(), CAMPOS_SCORE);
                                 if (questoes != null && !questoes.isEmpty()) {
                                     int correct = 0;
                                     for (var q : questoes) {
@@ -588,10 +656,11 @@ public class SimuladoService {
         }
 
     // ================= Helpers =================
+    // mapeamentos sem estado: package-private para os benchmarks JMH (src/jmh)
 
     @SuppressWarnings("unchecked")
-    private List<QuestoesCreateItemDTO> mapModeloParaQuestoes(String idSimulado, String userId,
-                                                              Map<String,Object> moduloResp, int modulo) {
+    static List<QuestoesCreateItemDTO> mapModeloParaQuestoes(String idSimulado, String userId,
+                                                             Map<String,Object> moduloResp, int modulo) {
         Object raw = moduloResp == null ? null : moduloResp.get("questions");
         List<Map<String,Object>> arr = (raw instanceof List<?> list)
                 ? (List<Map<String,Object>>) list
@@ -658,8 +727,8 @@ public class SimuladoService {
      * Mapeia as questões do Módulo 1 de um Original Exam para QuestoesCreateItemDTO
      */
     @SuppressWarnings("unchecked")
-    private List<QuestoesCreateItemDTO> mapOriginalExamModule1(String idSimulado, String userId,
-                                                                Map<String, Object> examData) {
+    static List<QuestoesCreateItemDTO> mapOriginalExamModule1(String idSimulado, String userId,
+                                                               Map<String, Object> examData) {
         Object raw = examData == null ? null : examData.get("module_1");
         
         // O Spring retorna List<OriginalExam.ExamQuestion>, não List<Map>
@@ -745,8 +814,8 @@ public class SimuladoService {
     /**
      * Mapeia as questões do Módulo 2 de um Original Exam para QuestoesCreateItemDTO
      */
-    private List<QuestoesCreateItemDTO> mapOriginalExamModule2(String idSimulado, String userId,
-                                                                Map<String, Object> module2Data) {
+    static List<QuestoesCreateItemDTO> mapOriginalExamModule2(String idSimulado, String userId,
+                                                               Map<String, Object> module2Data) {
         Object raw = module2Data == null ? null : module2Data.get("questions");
         
         // O Spring retorna List<OriginalExam.ExamQuestion>, não List<Map>
@@ -790,242 +859,7 @@ public class SimuladoService {
         return out;
     }
 
-    /**
-     * Clona o template e zera contadores/rates/flags.
-     * Mantém total_estruturas_s a partir do template (NUNCA remover nada).
-     */
-    private Map<String, TopicDTO> deepCloneAndZero(Map<String, TopicDTO> template) {
-        Map<String, TopicDTO> out = new HashMap<>();
-        if (template == null) return out;
-
-        template.forEach((topicName, topicDTO) -> {
-            Map<String, SubskillDTO> newSubs = new HashMap<>();
-            if (topicDTO.subskills() != null) {
-                topicDTO.subskills().forEach((subName, subDTO) -> {
-                    Map<String, StructureDTO> newStructs = new HashMap<>();
-                    int totalStructs = 0;
-                    if (subDTO.structures() != null) {
-                        for (var e : subDTO.structures().entrySet()) {
-                            totalStructs++;
-                            newStructs.put(e.getKey(), new StructureDTO(
-                                    50, 0L, 0L, 0.0, 0.0,
-                                    false, false, false,
-                                    0L, 0L,
-                                    "easy", 0, null // last_seen_at_sc = null
-                            ));
-                        }
-                    }
-                    newSubs.put(subName, new SubskillDTO(
-                            0L, 0L, 0.0, 0.0, null,   // last_seen_at_s = null
-                            null,                     // missed_two_sessions (derivaremos depois)
-                            false, false, false,
-                            0L, (long) totalStructs,
-                            newStructs
-                    ));
-                });
-            }
-            out.put(topicName, new TopicDTO(newSubs));
-        });
-        return out;
-    }
-
-    /**
-     * Soma/agg das métricas nas structures e subskills.
-     * Entrada: lista “todasQuestoesUsuario” como Maps (da API de Questões).
-     */
-    private void agregarQuestoesNoPerfil(Map<String, TopicDTO> profile, List<Map<String,Object>> qs) {
-        if (qs == null || qs.isEmpty()) return;
-
-        for (var q : qs) {
-            String topic = str(q.get("topic"));
-            String sub   = str(q.get("subskill"));
-            String st    = str(q.get("structure"));
-            if (topic == null || sub == null || st == null) continue;
-
-            var t = profile.get(topic);
-            if (t == null) continue;
-            var s = t.subskills().get(sub);
-            if (s == null) continue;
-            var mapStructs = s.structures();
-            if (mapStructs == null) continue;
-            var stDTO = mapStructs.get(st);
-            if (stDTO == null) continue;
-
-            // ===== contadores básicos =====
-            long attempts_prev = stDTO.attempts_sc() == null ? 0L : stDTO.attempts_sc();
-            long attempts_sc   = attempts_prev + 1L;
-
-            Object marcada = q.get("alternativa_marcada");
-            Object correta = q.get("correct_option");
-            boolean acertou = (marcada != null && correta != null &&
-                    marcada.toString().equalsIgnoreCase(correta.toString()));
-            long correct_sc = (stDTO.correct_sc() == null ? 0L : stDTO.correct_sc()) + (acertou ? 1L : 0L);
-
-            boolean usouDica = Boolean.TRUE.equals(q.get("dica"));
-            boolean abriuSol = Boolean.TRUE.equals(q.get("solucao"));
-
-            long hintsCountPrev     = Math.round((stDTO.hints_rate_sc()     == null ? 0.0 : stDTO.hints_rate_sc())     * attempts_prev);
-            long solutionsCountPrev = Math.round((stDTO.solutions_rate_sc() == null ? 0.0 : stDTO.solutions_rate_sc()) * attempts_prev);
-            long hintsCount     = hintsCountPrev     + (usouDica ? 1 : 0);
-            long solutionsCount = solutionsCountPrev + (abriuSol ? 1 : 0);
-
-            String diff = str(q.get("difficulty"));
-            boolean easy   = "easy".equalsIgnoreCase(diff);
-            boolean medium = "medium".equalsIgnoreCase(diff);
-            boolean hard   = "hard".equalsIgnoreCase(diff);
-
-            long mediumExp = (stDTO.medium_exposures_sc() == null ? 0L : stDTO.medium_exposures_sc()) + (medium ? 1L : 0L);
-            long hardExp   = (stDTO.hard_exposures_sc()   == null ? 0L : stDTO.hard_exposures_sc())   + (hard   ? 1L : 0L);
-
-            double hintsRate     = attempts_sc == 0 ? 0.0 : (hintsCount * 1.0 / attempts_sc);
-            double solutionsRate = attempts_sc == 0 ? 0.0 : (solutionsCount * 1.0 / attempts_sc);
-
-            // ===== last_seen_at_sc a partir da data do simulado =====
-            String simId = str(q.get("id_formulario"));
-            LocalDateTime seenAt = (this.simIdToDateTmp == null) ? null : this.simIdToDateTmp.get(simId);
-            String prevSeen = stDTO.last_seen_at_sc();
-            String newSeen  = prevSeen;
-            if (seenAt != null) {
-                if (prevSeen == null) newSeen = seenAt.toString();
-                else {
-                    LocalDateTime prev = LocalDateTime.parse(prevSeen);
-                    if (seenAt.isAfter(prev)) newSeen = seenAt.toString();
-                }
-            }
-
-            // ===== nível aplicado (maior dificuldade vista)
-            String prevLevel = stDTO.last_level_applied_sc() == null ? "easy" : stDTO.last_level_applied_sc();
-            String newLevel  = promoteLevel(prevLevel, diff);
-
-            // ===== P_sc heurístico
-            int p = stDTO.P_sc() == null ? 50 : stDTO.P_sc();
-            double acc = attempts_sc == 0 ? 0.0 : (correct_sc * 1.0 / attempts_sc);
-            if (acc >= 0.85) p += 3;
-            if (hardExp >= 2 && acc >= 0.7) p += 2;
-            if (hintsRate >= 0.5) p -= 4;
-            if (solutionsRate >= 0.3) p -= 6;
-            p = Math.max(0, Math.min(100, p));
-
-            // ===== cooldown por “tempo desde última exposição”
-            int cooldown = 0;
-            if (newSeen != null) {
-                LocalDateTime last = LocalDateTime.parse(newSeen);
-                long days = Duration.between(last, LocalDateTime.now()).toDays();
-                cooldown = (int) Math.max(0, 2 - days);
-            }
-
-            // aplica
-            mapStructs.put(st, new StructureDTO(
-                    p,
-                    attempts_sc,
-                    correct_sc,
-                    hintsRate,
-                    solutionsRate,
-                    (stDTO.easy_seen_sc()   != null && stDTO.easy_seen_sc())   || easy,
-                    (stDTO.medium_seen_sc() != null && stDTO.medium_seen_sc()) || medium,
-                    (stDTO.hard_seen_sc()   != null && stDTO.hard_seen_sc())   || hard,
-                    mediumExp,
-                    hardExp,
-                    newLevel,
-                    cooldown,
-                    newSeen
-            ));
-        }
-    }
-
-    private void fecharSubskills(Map<String, TopicDTO> profile) {
-        for (var tEntry : profile.entrySet()) {
-            var subs = tEntry.getValue().subskills();
-            if (subs == null) continue;
-
-            for (var sEntry : subs.entrySet()) {
-                var sName = sEntry.getKey();
-                var sDTO  = sEntry.getValue();
-                var structs = sDTO.structures();
-                if (structs == null || structs.isEmpty()) continue;
-
-                long attempts_s = 0, correct_s = 0, hintsUsed = 0, solsUsed = 0;
-                boolean easy_s=false, med_s=false, hard_s=false;
-                long vistas = 0;
-                long total  = sDTO.total_estruturas_s() == null ? structs.size() : sDTO.total_estruturas_s();
-
-                String lastSeenS = null;
-
-                for (var stDTO : structs.values()) {
-                    long a = stDTO.attempts_sc() == null ? 0L : stDTO.attempts_sc();
-                    attempts_s += a;
-                    correct_s  += (stDTO.correct_sc() == null ? 0L : stDTO.correct_sc());
-
-                    if (a > 0) {
-                        vistas += 1;
-                        hintsUsed += Math.round((stDTO.hints_rate_sc() == null ? 0.0 : stDTO.hints_rate_sc()) * a);
-                        solsUsed  += Math.round((stDTO.solutions_rate_sc() == null ? 0.0 : stDTO.solutions_rate_sc()) * a);
-                    }
-
-                    easy_s |= (stDTO.easy_seen_sc()   != null && stDTO.easy_seen_sc());
-                    med_s  |= (stDTO.medium_seen_sc() != null && stDTO.medium_seen_sc());
-                    hard_s |= (stDTO.hard_seen_sc()   != null && stDTO.hard_seen_sc());
-
-                    // last_seen_at_s = max(last_seen_at_sc)
-                    String stSeen = stDTO.last_seen_at_sc();
-                    if (stSeen != null) {
-                        if (lastSeenS == null) lastSeenS = stSeen;
-                        else {
-                            LocalDateTime aSeen = LocalDateTime.parse(lastSeenS);
-                            LocalDateTime bSeen = LocalDateTime.parse(stSeen);
-                            if (bSeen.isAfter(aSeen)) lastSeenS = stSeen;
-                        }
-                    }
-                }
-
-                double hr_s = attempts_s == 0 ? 0.0 : (hintsUsed * 1.0 / attempts_s);
-                double sr_s = attempts_s == 0 ? 0.0 : (solsUsed  * 1.0 / attempts_s);
-
-                // missed_two_sessions com base nos dois últimos finalizados
-                Boolean missedTwo = null;
-                if (this.subsUlt1Tmp != null) {
-                    boolean inUlt1 = this.subsUlt1Tmp.contains(sName);
-                    if (this.subsUlt2Tmp != null && !this.subsUlt2Tmp.isEmpty()) {
-                        boolean inUlt2 = this.subsUlt2Tmp.contains(sName);
-                        missedTwo = (!inUlt1 && !inUlt2);
-                    } else {
-                        // só 1 simulado finalizado disponível
-                        missedTwo = (!inUlt1);
-                    }
-                }
-
-                subs.put(sName, new SubskillDTO(
-                        attempts_s, correct_s, hr_s, sr_s, lastSeenS,
-                        missedTwo,
-                        easy_s, med_s, hard_s,
-                        vistas, total,
-                        structs
-                ));
-            }
-        }
-    }
-
-    private String promoteLevel(String prev, String seenNow) {
-        int rp = rank(prev);
-        int rn = rank(seenNow);
-        return rn > rp ? norm(seenNow) : norm(prev);
-    }
-    private int rank(String lvl) {
-        String v = norm(lvl);
-        return switch (v) {
-            case "hard" -> 3;
-            case "medium" -> 2;
-            default -> 1;
-        };
-    }
-    private String norm(String lvl) {
-        if (lvl == null) return "easy";
-        String v = lvl.trim().toLowerCase();
-        if ("hard".equals(v) || "medium".equals(v)) return v;
-        return "easy";
-    }
-
-    private String str(Object o) { return o == null ? null : o.toString(); }
+    private static String str(Object o) { return o == null ? null : o.toString(); }
 
     private SimuladoDTO toDTO(Simulado s) {
         return new SimuladoDTO(
@@ -2,7 +2,7 @@ package ai.startup.simulado.support;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
 
 import java.io.InputStream;
@@ -12,14 +12,12 @@ import java.util.Map;
 public class TemplateLoader {
     private final ObjectMapper om = new ObjectMapper();
 
-    public Map<String,Object> loadProfileTemplate(String userId) {
-        try (InputStream in = new ClassPathResource("templates/profile_template.json").getInputStream()) {
-            Map<String,Object> map = om.readValue(in, new TypeReference<Map<String,Object>>(){});
-            map.put("user_id", userId);
-            // NÃO setar created_at/updated_at aqui
-            return map;
+    /** Lê o profile_template.json (ordem dos topics/subskills/structures preservada). */
+    public Map<String,Object> loadProfileTemplate(Resource recurso) {
+        try (InputStream in = recurso.getInputStream()) {
+            return om.readValue(in, new TypeReference<Map<String,Object>>(){});
         } catch (Exception e) {
             throw new RuntimeException("Erro lendo profile_template.json", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package ai.startup.simulado.usuario;
 
+import ai.startup.simulado.http.HttpClientConfig;
+
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -11,7 +14,7 @@ import org.springframework.web.server.ResponseStatusException;
 public class UsuarioClient {
     private final RestTemplate rt;
     private final String base;
-    public UsuarioClient(RestTemplate rt, @Value("${api.usuario.base}") String base) {
+    public UsuarioClient(@Qualifier(HttpClientConfig.USUARIO) RestTemplate rt, @Value("${api.usuario.base}") String base) {
         this.rt = rt; this.base = base;
     }
 
@@ -26,10 +29,16 @@ public class UsuarioClient {
     }
 
     public UsuarioDTO atualizar(String bearerToken, String idUsuario, UsuarioUpdateDTO dto) {
+        return atualizar(bearerToken, idUsuario, dto, null);
+    }
+
+    /** PUT condicional: com {@code etag}, a API recusa (412) se o usuário mudou desde a leitura. */
+    public UsuarioDTO atualizar(String bearerToken, String idUsuario, UsuarioUpdateDTO dto, String etag) {
         String url = base + "/users/" + idUsuario;
         var headers = new HttpHeaders();
         headers.set("Authorization", bearerToken);
         headers.setContentType(MediaType.APPLICATION_JSON);
+        if (etag != null) headers.setIfMatch(etag);
 
         try {
             ResponseEntity<UsuarioDTO> resp =
@@ -50,6 +59,11 @@ public class UsuarioClient {
     }
 
     public UsuarioDTO buscarPorId(String idUsuario, String bearerToken) {
+        return buscarVersionado(idUsuario, bearerToken).usuario();
+    }
+
+    /** GET do usuário guardando o ETag da resposta (para um {@link #atualizar} condicional). */
+    public UsuarioVersionado buscarVersionado(String idUsuario, String bearerToken) {
         String url = base + "/users/" + idUsuario;
         var headers = new HttpHeaders();
         headers.set("Authorization", bearerToken);
@@ -58,7 +72,7 @@ public class UsuarioClient {
             var resp = rt.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), UsuarioDTO.class);
             var body = resp.getBody();
             if (body == null) throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "Resposta vazia ao buscar usuário");
-            return body;
+            return new UsuarioVersionado(body, resp.getHeaders().getETag());
         } catch (HttpStatusCodeException e) {
             throw new ResponseStatusException(
                     HttpStatus.BAD_GATEWAY,
@@ -0,0 +1,7 @@
+package ai.startup.simulado.usuario;
+
+/** Usuário lido junto com a versão (ETag) devolvida pela API; etag null se a API não versiona. */
+public record UsuarioVersionado(
+        UsuarioDTO usuario,
+        String etag
+) {}
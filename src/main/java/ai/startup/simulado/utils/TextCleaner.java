@@ -1,5 +1,8 @@
 package ai.startup.simulado.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import java.util.Map;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -12,9 +15,69 @@ import java.util.HashMap;
  * - "5x = 3(y - z)5x = 3(y - z)" -> "5x = 3(y - z)"
  * - "\(x=3\)\(x=3\)" -> "\(x=3\)"
  * - "g(x) = 3x² • 2-3g(x) = 3x2 • 2-3" -> "g(x) = 3x² • 2-3"
+ *
+ * Os padrões são compilados uma vez; cada etapa só roda se o texto tem o caractere que o
+ * padrão exige (dígito, "=", "\"), então texto corrido sem matemática não passa por regex.
+ * Com {@link #habilitarCache} ligado, o resultado dos textos com matemática fica memorizado
+ * (opções, hints e passos de solução se repetem entre questões e usuários).
  */
 public class TextCleaner {
 
+    // 0. equações repetidas
+    private static final Pattern EQUACAO_REPETIDA = Pattern.compile("(\\d*[xyzabcw]\\s*=\\s*[^=]{5,}?)\\1+");
+    private static final Pattern EQUACAO_REPETIDA_ESPACO = Pattern.compile("(\\d*[xyzabcw]\\s*=\\s*[^=]{5,}?)\\s+\\1+");
+    private static final Pattern PAR_EQUACOES = Pattern.compile("([xyzabcw]\\s*=\\s*[^=]{3,}?)([xyzabcw]\\s*=\\s*[^=]{3,}?)");
+
+    // 1. números e valores simples
+    private static final Pattern NUMERO_REPETIDO = Pattern.compile("(\\$?\\d+[⁻²³¹⁰⁴⁵⁶⁷⁸⁹%]?)\\1+");
+    private static final Pattern NUMERO_REPETIDO_ESPACO = Pattern.compile("(\\d+[⁻²³¹⁰⁴⁵⁶⁷⁸⁹%]?)\\s*\\1+");
+    private static final Pattern POTENCIA_REPETIDA = Pattern.compile("(\\d+[⁻²³¹⁰⁴⁵⁶⁷⁸⁹]+)\\1+");
+    private static final Pattern VALOR_REPETIDO = Pattern.compile("(\\$\\d+)\\1+");
+    private static final Pattern PERCENTUAL_REPETIDO = Pattern.compile("(\\d+%)\\1+");
+
+    // 2. blocos LaTeX completos
+    private static final Pattern INLINE_REPETIDO = Pattern.compile("(\\\\\\([^)]*?\\\\\\))\\s*\\1+");
+    private static final Pattern DISPLAY_REPETIDO = Pattern.compile("(\\\\\\[[^\\]]*?\\\\])\\s*\\1+");
+    private static final Pattern INLINE_CURTO_REPETIDO = Pattern.compile("(\\\\\\([^)]{1,50}?\\\\\\))\\1+");
+
+    // 3. "x = ... * x = ..."
+    private static final Pattern EQUACAO_ASTERISCO = Pattern.compile("([xyzabcw]\\s*=\\s*[^\\\\*]{5,}?)\\s*\\*\\s*[xyzabcw]\\s*=\\s*[^\\\\]+?");
+
+    // 4. expressões matemáticas
+    private static final Pattern PAR_EXPRESSOES = Pattern.compile("([xyzabcw]\\s*=\\s*[^\\\\]{3,}?)([xyzabcw]\\s*=\\s*[^\\\\]{3,}?)");
+
+    // 5/6. LaTeX e texto equivalente
+    private static final Pattern INLINE_TEXTO = Pattern.compile("(\\\\\\([^)]*?\\\\\\))\\s*([^\\\\]{1,50}?)");
+    private static final Pattern DISPLAY_TEXTO = Pattern.compile("(\\\\\\[[^\\]]*?\\\\])\\s*([^\\\\]{1,50}?)");
+    private static final Pattern TEXTO_INLINE = Pattern.compile("([^\\\\]{1,50}?)\\s*(\\\\\\([^)]*?\\\\\\))");
+    private static final Pattern TEXTO_DISPLAY = Pattern.compile("([^\\\\]{1,50}?)\\s*(\\\\\\[[^\\]]*?\\\\])");
+
+    private static final Pattern DIGITOS = Pattern.compile("\\d+");
+
+    private static final int MAX_PASSADAS_EXPRESSOES = 5;
+
+    // texto original -> texto limpo; null = sem cache
+    private static volatile Cache<String, String> cache;
+
+    /**
+     * Liga a memorização do {@link #cleanText} (Caffeine, W-TinyLFU) limitada a ~{@code maxBytes}
+     * de chars (texto original + limpo). Chamado uma vez na subida da aplicação.
+     */
+    public static Cache<String, String> habilitarCache(long maxBytes) {
+        Cache<String, String> novo = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String original, String limpo) -> pesoEmBytes(original, limpo))
+                .recordStats()
+                .build();
+        cache = novo;
+        return novo;
+    }
+
+    /** Desliga a memorização (testes: o cache é estático e valeria para o processo todo). */
+    static void desabilitarCache() {
+        cache = null;
+    }
+
     /**
      * Limpa duplicações em um texto de questão, opção, hint ou solução.
      */
@@ -23,44 +86,64 @@ public class TextCleaner {
             return text;
         }
 
-        String cleaned = text.trim();
+        // texto sem dígito, "=" ou "\" só passa pela etapa 7: mais barato que consultar o cache
+        Cache<String, String> c = cache;
+        if (c != null && temMatematica(text)) {
+            return c.get(text, TextCleaner::limpar);
+        }
+        return limpar(text);
+    }
 
-        // 0. NOVO: Remove duplicações completas de equações (ex: "5x = 3(y - z)5x = 3(y - z)")
-        // Primeiro, normaliza diferentes tipos de hífen e espaços
-        cleaned = cleaned.replaceAll("[–−]", "-"); // Normaliza diferentes tipos de hífen
-        // Detecta padrões como: número/variável seguido de "=" seguido de expressão, repetido
-        cleaned = cleaned.replaceAll("(\\d*[xyzabcw]\\s*=\\s*[^=]{5,}?)\\1+", "$1");
-        // Também captura casos com espaços: "5x = 3(y - z) 5x = 3(y - z)"
-        cleaned = cleaned.replaceAll("(\\d*[xyzabcw]\\s*=\\s*[^=]{5,}?)\\s+\\1+", "$1");
-        // Captura casos onde há LaTeX no meio
-        cleaned = removeCompleteEquationDuplicates(cleaned);
+    private static String limpar(String text) {
+        // Normaliza diferentes tipos de hífen
+        String cleaned = text.trim().replace('–', '-').replace('−', '-');
+
+        // 0. Remove duplicações completas de equações (ex: "5x = 3(y - z)5x = 3(y - z)"),
+        // com ou sem espaço entre elas e com LaTeX no meio
+        if (cleaned.indexOf('=') >= 0) {
+            cleaned = EQUACAO_REPETIDA.matcher(cleaned).replaceAll("$1");
+            cleaned = EQUACAO_REPETIDA_ESPACO.matcher(cleaned).replaceAll("$1");
+            cleaned = removeCompleteEquationDuplicates(cleaned);
+        }
 
         // 1. Remove duplicações de números e valores simples (ex: $80$80, 15%15%, 3⁻²3⁻²)
-        cleaned = cleaned.replaceAll("(\\$?\\d+[⁻²³¹⁰⁴⁵⁶⁷⁸⁹%]?)\\1+", "$1");
-        cleaned = cleaned.replaceAll("(\\d+[⁻²³¹⁰⁴⁵⁶⁷⁸⁹%]?)\\s*\\1+", "$1");
-        cleaned = cleaned.replaceAll("(\\d+[⁻²³¹⁰⁴⁵⁶⁷⁸⁹]+)\\1+", "$1");
-        cleaned = cleaned.replaceAll("(\\$\\d+)\\1+", "$1");
-        cleaned = cleaned.replaceAll("(\\d+%)\\1+", "$1");
+        if (temDigito(cleaned)) {
+            cleaned = NUMERO_REPETIDO.matcher(cleaned).replaceAll("$1");
+            cleaned = NUMERO_REPETIDO_ESPACO.matcher(cleaned).replaceAll("$1");
+            cleaned = POTENCIA_REPETIDA.matcher(cleaned).replaceAll("$1");
+            cleaned = VALOR_REPETIDO.matcher(cleaned).replaceAll("$1");
+            cleaned = PERCENTUAL_REPETIDO.matcher(cleaned).replaceAll("$1");
+        }
 
         // 2. Remove duplicações de blocos LaTeX completos: \(...\) \(...\)
-        cleaned = cleaned.replaceAll("(\\\\\\([^)]*?\\\\\\))\\s*\\1+", "$1");
-        cleaned = cleaned.replaceAll("(\\\\\\[[^\\]]*?\\\\])\\s*\\1+", "$1");
-        cleaned = cleaned.replaceAll("(\\\\\\([^)]{1,50}?\\\\\\))\\1+", "$1");
+        if (cleaned.indexOf('\\') >= 0) {
+            cleaned = INLINE_REPETIDO.matcher(cleaned).replaceAll("$1");
+            cleaned = DISPLAY_REPETIDO.matcher(cleaned).replaceAll("$1");
+            cleaned = INLINE_CURTO_REPETIDO.matcher(cleaned).replaceAll("$1");
+        }
 
         // 3. Remove padrão específico: "x = ... * x = ..." (com asterisco no meio)
-        cleaned = cleaned.replaceAll("([xyzabcw]\\s*=\\s*[^\\\\*]{5,}?)\\s*\\*\\s*[xyzabcw]\\s*=\\s*[^\\\\]+?", "$1");
+        if (cleaned.indexOf('=') >= 0 && cleaned.indexOf('*') >= 0) {
+            cleaned = EQUACAO_ASTERISCO.matcher(cleaned).replaceAll("$1");
+        }
 
         // 4. Remove duplicações de expressões matemáticas: "x = 3(y - z)x = 3(y - z)"
-        // Aplica múltiplas vezes para pegar todas as duplicações
-        for (int i = 0; i < 5; i++) {
-            cleaned = removeDuplicateExpressions(cleaned);
+        // Repete até não mudar mais (no máximo 5 passadas)
+        if (cleaned.indexOf('=') >= 0) {
+            for (int i = 0; i < MAX_PASSADAS_EXPRESSOES; i++) {
+                String proximo = removeDuplicateExpressions(cleaned);
+                if (proximo.equals(cleaned)) break;
+                cleaned = proximo;
+            }
         }
 
-        // 5. Remove duplicações onde há LaTeX seguido do mesmo texto sem LaTeX
-        cleaned = removeLatexTextDuplicates(cleaned);
+        if (cleaned.indexOf('\\') >= 0) {
+            // 5. Remove duplicações onde há LaTeX seguido do mesmo texto sem LaTeX
+            cleaned = removeLatexTextDuplicates(cleaned);
 
-        // 6. Remove duplicações onde há texto seguido do mesmo texto em LaTeX
-        cleaned = removeTextLatexDuplicates(cleaned);
+            // 6. Remove duplicações onde há texto seguido do mesmo texto em LaTeX
+            cleaned = removeTextLatexDuplicates(cleaned);
+        }
 
         // 7. Análise de metade do texto - detecta duplicações grandes
         cleaned = removeLargeDuplicates(cleaned);
@@ -72,38 +155,20 @@ public class TextCleaner {
      * Remove duplicações completas de equações (ex: "5x = 3(y - z)5x = 3(y - z)")
      */
     private static String removeCompleteEquationDuplicates(String text) {
-        Pattern pattern = Pattern.compile("([xyzabcw]\\s*=\\s*[^=]{3,}?)([xyzabcw]\\s*=\\s*[^=]{3,}?)");
-        Matcher matcher = pattern.matcher(text);
-        StringBuffer sb = new StringBuffer();
+        Matcher matcher = PAR_EQUACOES.matcher(text);
+        if (!matcher.find()) return text;
+        StringBuilder sb = new StringBuilder(text.length());
 
-        while (matcher.find()) {
+        do {
             String p1 = matcher.group(1);
             String p2 = matcher.group(2);
             String fullMatch = matcher.group(0);
 
-            // Normaliza para comparação
-            // Remover sequências LaTeX como \(, \[, \{, etc. de forma segura
-            // Usar replace simples para evitar problemas com classes de caracteres regex
-            String temp1 = p1.replace("\\(", "").replace("\\)", "").replace("\\[", "").replace("\\]", "")
-                    .replace("\\{", "").replace("\\}", "");
-            String temp2 = p2.replace("\\(", "").replace("\\)", "").replace("\\[", "").replace("\\]", "")
-                    .replace("\\{", "").replace("\\}", "");
-            String norm1 = temp1.replaceAll("\\s+", "").toLowerCase();
-            String norm2 = temp2.replaceAll("\\s+", "").toLowerCase();
-            
-            // Remove caracteres LaTeX e matemáticos para comparação
-            // Também normaliza números que podem estar em formatos diferentes (ex: "53" vs "5" seguido de "3")
-            // Corrigido: remover caracteres especiais de forma segura usando múltiplos replaceAll
-            // para evitar problemas com classes de caracteres regex
-            String clean1 = norm1.replace("(", "").replace(")", "").replace("{", "").replace("}", "")
-                    .replace("[", "").replace("]", "").replace("\\", "")
-                    .replaceAll("[+\\-*/=]", "").replaceAll("frac", "")
-                    .replaceAll("\\d+", "N"); // Normaliza números para "N"
-            String clean2 = norm2.replace("(", "").replace(")", "").replace("{", "").replace("}", "")
-                    .replace("[", "").replace("]", "").replace("\\", "")
-                    .replaceAll("[+\\-*/=]", "").replaceAll("frac", "")
-                    .replaceAll("\\d+", "N"); // Normaliza números para "N"
-            
+            // Normaliza para comparação: sem delimitadores LaTeX, espaços, símbolos e "frac";
+            // números viram "N" (ex: "53" vs "5" seguido de "3")
+            String clean1 = normalizarEquacao(p1);
+            String clean2 = normalizarEquacao(p2);
+
             // Se são muito similares (70%+), é duplicação
             if (clean1.length() >= 5 && clean2.length() >= 5) {
                 int minLen = Math.min(clean1.length(), clean2.length());
@@ -127,7 +192,7 @@ public class TextCleaner {
             }
 
             matcher.appendReplacement(sb, fullMatch);
-        }
+        } while (matcher.find());
         matcher.appendTail(sb);
         return sb.toString();
     }
@@ -137,26 +202,17 @@ public class TextCleaner {
      */
     private static String removeDuplicateExpressions(String text) {
         // Padrão: variável = expressão seguida de variável = expressão similar
-        Pattern pattern = Pattern.compile("([xyzabcw]\\s*=\\s*[^\\\\]{3,}?)([xyzabcw]\\s*=\\s*[^\\\\]{3,}?)");
-        Matcher matcher = pattern.matcher(text);
-        StringBuffer sb = new StringBuffer();
+        Matcher matcher = PAR_EXPRESSOES.matcher(text);
+        if (!matcher.find()) return text;
+        StringBuilder sb = new StringBuilder(text.length());
 
-        while (matcher.find()) {
+        do {
             String p1 = matcher.group(1);
             String p2 = matcher.group(2);
 
-            // Normaliza ambas as partes removendo espaços e convertendo para minúsculas
-            String norm1 = p1.replaceAll("\\s+", "").toLowerCase();
-            String norm2 = p2.replaceAll("\\s+", "").toLowerCase();
-
-            // Remove caracteres especiais para comparação mais flexível
-            // Corrigido: remover caracteres de forma segura usando replace simples
-            String clean1 = norm1.replace("(", "").replace(")", "").replace("{", "").replace("}", "")
-                    .replace("[", "").replace("]", "")
-                    .replaceAll("[+\\-*/]", "");
-            String clean2 = norm2.replace("(", "").replace(")", "").replace("{", "").replace("}", "")
-                    .replace("[", "").replace("]", "")
-                    .replaceAll("[+\\-*/]", "");
+            // Normaliza ambas as partes (sem espaços, minúsculas, sem parênteses/chaves/operadores)
+            String clean1 = normalizarExpressao(p1);
+            String clean2 = normalizarExpressao(p2);
 
             // Compara os primeiros caracteres (mínimo 8 para evitar falsos positivos)
             if (clean1.length() >= 8 && clean2.length() >= 8) {
@@ -187,7 +243,7 @@ public class TextCleaner {
 
             // Se não for duplicação, mantém o match original
             matcher.appendReplacement(sb, matcher.group(0));
-        }
+        } while (matcher.find());
         matcher.appendTail(sb);
         return sb.toString();
     }
@@ -196,165 +252,43 @@ public class TextCleaner {
      * Remove duplicações onde há LaTeX seguido do mesmo texto sem LaTeX
      */
     private static String removeLatexTextDuplicates(String text) {
-        Pattern pattern = Pattern.compile("(\\\\\\([^)]*?\\\\\\))\\s*([^\\\\]{1,50}?)");
-        Matcher matcher = pattern.matcher(text);
-        StringBuffer sb = new StringBuffer();
-
-        while (matcher.find()) {
-            String latexBlock = matcher.group(1);
-            String textAfter = matcher.group(2);
-
-            String latexContent = latexBlock.replaceAll("^\\\\\\(", "").replaceAll("\\\\\\)$", "");
-            String latexNorm = latexContent
-                    .replace("\\", "")
-                    .replace("{", "")
-                    .replace("}", "")
-                    .replace("^", "")
-                    .replace("_", "")
-                    .replaceAll("\\s+", "")
-                    .toLowerCase();
-
-            String textNorm = textAfter
-                    .replace("⁻", "-").replace("²", "2").replace("³", "3")
-                    .replace("¹", "1").replace("⁰", "0").replace("⁴", "4")
-                    .replace("⁵", "5").replace("⁶", "6").replace("⁷", "7")
-                    .replace("⁸", "8").replace("⁹", "9")
-                    .replaceAll("\\s+", "")
-                    .toLowerCase();
-
-            if (latexNorm.length() > 2 && textNorm.length() > 2) {
-                int compareLen = Math.min(10, Math.min(latexNorm.length(), textNorm.length()));
-                if (latexNorm.substring(0, compareLen).equals(textNorm.substring(0, compareLen))) {
-                    matcher.appendReplacement(sb, Matcher.quoteReplacement(latexBlock));
-                    continue;
-                }
-            }
-
-            matcher.appendReplacement(sb, matcher.group(0));
-        }
-        matcher.appendTail(sb);
-
-        pattern = Pattern.compile("(\\\\\\[[^\\]]*?\\\\])\\s*([^\\\\]{1,50}?)");
-        matcher = pattern.matcher(sb.toString());
-        sb = new StringBuffer();
-
-        while (matcher.find()) {
-            String latexBlock = matcher.group(1);
-            String textAfter = matcher.group(2);
-
-            String latexContent = latexBlock.replaceAll("^\\\\\\[", "").replaceAll("\\\\]$", "");
-            String latexNorm = latexContent
-                    .replace("\\", "")
-                    .replace("{", "")
-                    .replace("}", "")
-                    .replace("^", "")
-                    .replace("_", "")
-                    .replaceAll("\\s+", "")
-                    .toLowerCase();
-
-            String textNorm = textAfter
-                    .replace("⁻", "-").replace("²", "2").replace("³", "3")
-                    .replace("¹", "1").replace("⁰", "0").replace("⁴", "4")
-                    .replace("⁵", "5").replace("⁶", "6").replace("⁷", "7")
-                    .replace("⁸", "8").replace("⁹", "9")
-                    .replaceAll("\\s+", "")
-                    .toLowerCase();
-
-            if (latexNorm.length() > 2 && textNorm.length() > 2) {
-                int compareLen = Math.min(10, Math.min(latexNorm.length(), textNorm.length()));
-                if (latexNorm.substring(0, compareLen).equals(textNorm.substring(0, compareLen))) {
-                    matcher.appendReplacement(sb, Matcher.quoteReplacement(latexBlock));
-                    continue;
-                }
-            }
-
-            matcher.appendReplacement(sb, matcher.group(0));
-        }
-        matcher.appendTail(sb);
-
-        return sb.toString();
+        return manterLatex(manterLatex(text, INLINE_TEXTO, 1, 2), DISPLAY_TEXTO, 1, 2);
     }
 
     /**
      * Remove duplicações onde há texto seguido do mesmo texto em LaTeX
      */
     private static String removeTextLatexDuplicates(String text) {
-        Pattern pattern = Pattern.compile("([^\\\\]{1,50}?)\\s*(\\\\\\([^)]*?\\\\\\))");
+        return manterLatex(manterLatex(text, TEXTO_INLINE, 2, 1), TEXTO_DISPLAY, 2, 1);
+    }
+
+    /**
+     * Troca "bloco LaTeX + texto equivalente" (em qualquer ordem) só pelo bloco LaTeX.
+     * O bloco sempre começa com "\(" ou "\[" e termina com "\)" ou "\]".
+     */
+    private static String manterLatex(String text, Pattern pattern, int grupoLatex, int grupoTexto) {
         Matcher matcher = pattern.matcher(text);
-        StringBuffer sb = new StringBuffer();
-
-        while (matcher.find()) {
-            String textBefore = matcher.group(1);
-            String latexBlock = matcher.group(2);
-
-            String textNorm = textBefore
-                    .replace("⁻", "-").replace("²", "2").replace("³", "3")
-                    .replace("¹", "1").replace("⁰", "0").replace("⁴", "4")
-                    .replace("⁵", "5").replace("⁶", "6").replace("⁷", "7")
-                    .replace("⁸", "8").replace("⁹", "9")
-                    .replaceAll("\\s+", "")
-                    .toLowerCase();
-
-            String latexContent = latexBlock.replaceAll("^\\\\\\(", "").replaceAll("\\\\\\)$", "");
-            String latexNorm = latexContent
-                    .replace("\\", "")
-                    .replace("{", "")
-                    .replace("}", "")
-                    .replace("^", "")
-                    .replace("_", "")
-                    .replaceAll("\\s+", "")
-                    .toLowerCase();
-
-            if (textNorm.length() > 2 && latexNorm.length() > 2) {
-                int compareLen = Math.min(10, Math.min(textNorm.length(), latexNorm.length()));
-                if (textNorm.substring(0, compareLen).equals(latexNorm.substring(0, compareLen))) {
-                    matcher.appendReplacement(sb, Matcher.quoteReplacement(latexBlock));
-                    continue;
-                }
-            }
+        if (!matcher.find()) return text;
+        StringBuilder sb = new StringBuilder(text.length());
 
-            matcher.appendReplacement(sb, matcher.group(0));
-        }
-        matcher.appendTail(sb);
+        do {
+            String latexBlock = matcher.group(grupoLatex);
+            String texto = matcher.group(grupoTexto);
+
+            String latexNorm = normalizarLatex(latexBlock.substring(2, latexBlock.length() - 2));
+            String textNorm = normalizarTexto(texto);
 
-        pattern = Pattern.compile("([^\\\\]{1,50}?)\\s*(\\\\\\[[^\\]]*?\\\\])");
-        matcher = pattern.matcher(sb.toString());
-        sb = new StringBuffer();
-
-        while (matcher.find()) {
-            String textBefore = matcher.group(1);
-            String latexBlock = matcher.group(2);
-
-            String textNorm = textBefore
-                    .replace("⁻", "-").replace("²", "2").replace("³", "3")
-                    .replace("¹", "1").replace("⁰", "0").replace("⁴", "4")
-                    .replace("⁵", "5").replace("⁶", "6").replace("⁷", "7")
-                    .replace("⁸", "8").replace("⁹", "9")
-                    .replaceAll("\\s+", "")
-                    .toLowerCase();
-
-            String latexContent = latexBlock.replaceAll("^\\\\\\[", "").replaceAll("\\\\]$", "");
-            String latexNorm = latexContent
-                    .replace("\\", "")
-                    .replace("{", "")
-                    .replace("}", "")
-                    .replace("^", "")
-                    .replace("_", "")
-                    .replaceAll("\\s+", "")
-                    .toLowerCase();
-
-            if (textNorm.length() > 2 && latexNorm.length() > 2) {
-                int compareLen = Math.min(10, Math.min(textNorm.length(), latexNorm.length()));
-                if (textNorm.substring(0, compareLen).equals(latexNorm.substring(0, compareLen))) {
+            if (latexNorm.length() > 2 && textNorm.length() > 2) {
+                int compareLen = Math.min(10, Math.min(latexNorm.length(), textNorm.length()));
+                if (latexNorm.regionMatches(0, textNorm, 0, compareLen)) {
                     matcher.appendReplacement(sb, Matcher.quoteReplacement(latexBlock));
                     continue;
                 }
             }
 
             matcher.appendReplacement(sb, matcher.group(0));
-        }
+        } while (matcher.find());
         matcher.appendTail(sb);
-
         return sb.toString();
     }
 
@@ -362,7 +296,7 @@ public class TextCleaner {
      * Análise de metade do texto - detecta duplicações grandes
      */
     private static String removeLargeDuplicates(String text) {
-        String normalized = text.replaceAll("\\s+", " ").trim();
+        String normalized = colapsarEspacos(text).trim();
         if (normalized.length() <= 15) {
             return text;
         }
@@ -372,17 +306,15 @@ public class TextCleaner {
         String secondHalf = normalized.substring(midPoint);
 
         if (firstHalf.length() > 8 && secondHalf.length() > 8) {
-            String firstClean = firstHalf
+            String firstClean = semEspacos(firstHalf
                     .replace("\\(", "").replace("\\)", "")
-                    .replace("\\[", "").replace("\\]", "")
-                    .replaceAll("\\s+", "");
-            String secondClean = secondHalf
+                    .replace("\\[", "").replace("\\]", ""));
+            String secondClean = semEspacos(secondHalf
                     .replace("\\(", "").replace("\\)", "")
-                    .replace("\\[", "").replace("\\]", "")
-                    .replaceAll("\\s+", "");
+                    .replace("\\[", "").replace("\\]", ""));
 
             int compareLen = Math.min(20, Math.min(firstClean.length(), secondClean.length()));
-            if (compareLen > 8 && firstClean.substring(0, compareLen).equals(secondClean.substring(0, compareLen))) {
+            if (compareLen > 8 && firstClean.regionMatches(0, secondClean, 0, compareLen)) {
                 boolean firstHasLatex = firstHalf.contains("\\(") || firstHalf.contains("\\[");
                 boolean secondHasLatex = secondHalf.contains("\\(") || secondHalf.contains("\\[");
 
@@ -403,6 +335,132 @@ public class TextCleaner {
         return text;
     }
 
+    // ================= normalizações (uma passada por string) =================
+
+    private static String normalizarEquacao(String parte) {
+        String semDelimitadores = parte.replace("\\(", "").replace("\\)", "").replace("\\[", "").replace("\\]", "")
+                .replace("\\{", "").replace("\\}", "");
+        String norm = semEspacos(semDelimitadores).toLowerCase();
+
+        StringBuilder sb = new StringBuilder(norm.length());
+        for (int i = 0; i < norm.length(); i++) {
+            char c = norm.charAt(i);
+            switch (c) {
+                case '(', ')', '{', '}', '[', ']', '\\', '+', '-', '*', '/', '=' -> { }
+                default -> sb.append(c);
+            }
+        }
+        return DIGITOS.matcher(sb.toString().replace("frac", "")).replaceAll("N");
+    }
+
+    private static String normalizarExpressao(String parte) {
+        String norm = semEspacos(parte).toLowerCase();
+
+        StringBuilder sb = new StringBuilder(norm.length());
+        for (int i = 0; i < norm.length(); i++) {
+            char c = norm.charAt(i);
+            switch (c) {
+                case '(', ')', '{', '}', '[', ']', '+', '-', '*', '/' -> { }
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String normalizarLatex(String conteudo) {
+        StringBuilder sb = new StringBuilder(conteudo.length());
+        for (int i = 0; i < conteudo.length(); i++) {
+            char c = conteudo.charAt(i);
+            switch (c) {
+                case '\\', '{', '}', '^', '_' -> { }
+                default -> {
+                    if (!espaco(c)) sb.append(c);
+                }
+            }
+        }
+        return sb.toString().toLowerCase();
+    }
+
+    /** Sobrescritos viram os dígitos/sinal normais; espaços somem. */
+    private static String normalizarTexto(String texto) {
+        StringBuilder sb = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '⁻' -> sb.append('-');
+                case '⁰' -> sb.append('0');
+                case '¹' -> sb.append('1');
+                case '²' -> sb.append('2');
+                case '³' -> sb.append('3');
+                case '⁴' -> sb.append('4');
+                case '⁵' -> sb.append('5');
+                case '⁶' -> sb.append('6');
+                case '⁷' -> sb.append('7');
+                case '⁸' -> sb.append('8');
+                case '⁹' -> sb.append('9');
+                default -> {
+                    if (!espaco(c)) sb.append(c);
+                }
+            }
+        }
+        return sb.toString().toLowerCase();
+    }
+
+    /** Equivale a {@code replaceAll("\\s+", "")}. */
+    private static String semEspacos(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (espaco(c)) {
+                if (sb == null) sb = new StringBuilder(s.length()).append(s, 0, i);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    /** Equivale a {@code replaceAll("\\s+", " ")}. */
+    private static String colapsarEspacos(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean anteriorEspaco = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (espaco(c)) {
+                if (!anteriorEspaco) sb.append(' ');
+                anteriorEspaco = true;
+            } else {
+                sb.append(c);
+                anteriorEspaco = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    // mesmo conjunto do \s das regex (sem UNICODE_CHARACTER_CLASS)
+    private static boolean espaco(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean temMatematica(String s) {
+        return s.indexOf('=') >= 0 || s.indexOf('\\') >= 0 || temDigito(s);
+    }
+
+    // chars UTF-16 + cabeçalhos aproximados dos dois Strings e da entrada do cache
+    private static int pesoEmBytes(String original, String limpo) {
+        long bytes = 2L * (original.length() + limpo.length()) + 112;
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    // mesmo conjunto do \d das regex: só dígitos ASCII
+    private static boolean temDigito(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') return true;
+        }
+        return false;
+    }
+
     /**
      * Limpa todas as opções de uma questão.
      */
@@ -431,4 +489,3 @@ public class TextCleaner {
                 .toList();
     }
 }
-
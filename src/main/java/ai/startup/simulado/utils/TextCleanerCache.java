@@ -0,0 +1,42 @@
+package ai.startup.simulado.utils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Liga o cache do {@link TextCleaner} na subida e publica as métricas
+ * (cache.gets/evictions/size com cache=text_cleaner e text_cleaner.cache.hit_ratio).
+ */
+@Slf4j
+@Component
+public class TextCleanerCache {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean habilitado;
+    private final long maxMb;
+
+    public TextCleanerCache(MeterRegistry meterRegistry,
+                            @Value("${text-cleaner.cache.habilitado:true}") boolean habilitado,
+                            @Value("${text-cleaner.cache.max-mb:32}") long maxMb) {
+        this.meterRegistry = meterRegistry;
+        this.habilitado = habilitado;
+        this.maxMb = maxMb;
+    }
+
+    @PostConstruct
+    void iniciar() {
+        if (!habilitado) return;
+
+        var cache = TextCleaner.habilitarCache(maxMb * 1024 * 1024);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "text_cleaner");
+        Gauge.builder("text_cleaner.cache.hit_ratio", cache, c -> c.stats().hitRate())
+                .description("Fração das limpezas servidas pelo cache")
+                .register(meterRegistry);
+        log.info("[TextCleaner] Cache habilitado ({} MB)", maxMb);
+    }
+}
@@ -0,0 +1,57 @@
+package ai.startup.simulado.wins;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import lombok.Data;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conta local de wins do usuário (coleção wins_contas, um documento por usuário).
+ * Guarda só o que ainda não foi aplicado na API de usuários: o saldo disponível é
+ * {@code wins da API - comprometido}.
+ */
+@Data
+@Document(collection = "wins_contas")
+@CompoundIndex(name = "reservas_criado_idx", def = "{'reservas.criado_em': 1}")
+public class ContaWins {
+
+    @Id
+    private String id;
+
+    @Indexed(unique = true)
+    @Field("user_id")
+    private String userId;
+
+    // reservas em aberto + pendente (o que a API de usuários ainda não descontou)
+    private long comprometido;
+
+    // débitos confirmados menos estornos, a aplicar na API de usuários no próximo lote
+    @Indexed
+    private long pendente;
+
+    // reservas em aberto (RESERVADO)
+    private List<ReservaWins> reservas = new ArrayList<>();
+
+    // últimas reservas confirmadas (CONFIRMADO), para permitir o estorno
+    private List<ReservaWins> confirmadas = new ArrayList<>();
+
+    // enquanto no futuro, a conta pertence ao liquidador que a pegou
+    @Field("lease_ate")
+    private LocalDateTime leaseAte;
+
+    // lote enviado à API de usuários e ainda não baixado aqui
+    private Long liquidando;
+
+    @Field("liquidado_em")
+    private LocalDateTime liquidadoEm;
+
+    private String erro;
+
+    @Field("atualizado_em")
+    private LocalDateTime atualizadoEm;
+}
@@ -0,0 +1,21 @@
+package ai.startup.simulado.wins;
+
+import org.springframework.data.mongodb.core.mapping.Field;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/** Reserva de wins dentro de uma {@link ContaWins} (reservada ou já confirmada). */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReservaWins {
+
+    private String codigo;
+
+    private long valor;
+
+    @Field("criado_em")
+    private LocalDateTime criadoEm;
+}
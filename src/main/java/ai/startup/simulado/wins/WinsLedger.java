@@ -0,0 +1,327 @@
+package ai.startup.simulado.wins;
+
+import ai.startup.simulado.auth.ServicoToken;
+import ai.startup.simulado.http.BulkheadCheioException;
+import ai.startup.simulado.http.CircuitoAbertoException;
+import ai.startup.simulado.usuario.UsuarioClient;
+import ai.startup.simulado.usuario.UsuarioUpdateDTO;
+import ai.startup.simulado.usuario.UsuarioVersionado;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.ConnectException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Ledger local de wins (coleção wins_contas): os inícios reservam com um único update
+ * atômico ($inc com guarda de saldo) em vez de ler/calcular/PUT na API de usuários.
+ * - reservar: compromete o valor se {@code wins da API - comprometido >= valor};
+ * - confirmar: a reserva vira débito pendente; liberar: devolve (reservada ou confirmada);
+ * - o liquidador aplica os pendentes na API de usuários em lotes (um PUT por conta).
+ * A API de usuários só aceita o saldo absoluto (sem delta), então o lote é lido e
+ * regravado com a conta sob lease; reservas feitas com um saldo lido antes de um lote
+ * terminar são recusadas pela guarda e refeitas com o saldo relido.
+ * O GET + PUT absoluto perderia uma escrita de wins feita por outro serviço entre os dois:
+ * o PUT vai com If-Match (ETag do GET) e, se a API recusar (412), o lote é refeito depois da
+ * espera de falha, com o saldo relido. Se a API não devolver ETag, o PUT sai sem condição e
+ * essa janela (entre o GET e o PUT do liquidador) continua aberta.
+ * A liquidação roda fora da requisição, com a credencial do serviço ({@link ServicoToken});
+ * o token do usuário só é usado dentro do início e nunca é gravado na conta.
+ */
+@Slf4j
+@Component
+public class WinsLedger {
+
+    private static final int CONFIRMADAS_GUARDADAS = 100;
+    private static final int TENTATIVAS_RESERVA = 3;
+
+    private final MongoTemplate mongo;
+    private final UsuarioClient usuarioClient;
+    private final ServicoToken servicoToken;
+    private final int lote;
+    private final Duration lease;
+    private final Duration esperaFalha;
+    private final Duration expiracaoReserva;
+
+    private final Counter liquidacoes;
+    private final Counter falhas;
+
+    /** Reserva feita por {@link #reservar}; é o que o chamador devolve em confirmar/liberar. */
+    public record Reserva(String userId, String codigo, long valor) {}
+
+    public WinsLedger(MongoTemplate mongo,
+                      UsuarioClient usuarioClient,
+                      ServicoToken servicoToken,
+                      MeterRegistry meterRegistry,
+                      @Value("${wins.liquidacao.lote:50}") int lote,
+                      @Value("${wins.liquidacao.lease-segundos:60}") long leaseSegundos,
+                      @Value("${wins.liquidacao.espera-falha-segundos:30}") long esperaFalhaSegundos,
+                      @Value("${wins.reserva.expira-minutos:30}") long expiraMinutos) {
+        this.mongo = mongo;
+        this.usuarioClient = usuarioClient;
+        this.servicoToken = servicoToken;
+        this.lote = lote;
+        this.lease = Duration.ofSeconds(leaseSegundos);
+        this.esperaFalha = Duration.ofSeconds(esperaFalhaSegundos);
+        this.expiracaoReserva = Duration.ofMinutes(expiraMinutos);
+        this.liquidacoes = Counter.builder("wins.liquidacao.contas").description("Contas de wins liquidadas na API de usuários").register(meterRegistry);
+        this.falhas = Counter.builder("wins.liquidacao.falhas").description("Liquidações de wins que falharam (retentadas depois)").register(meterRegistry);
+    }
+
+    /**
+     * Reserva {@code valor} wins do usuário.
+     * @param saldo       wins informados pela API de usuários
+     * @param saldoLidoEm instante de antes da leitura do saldo
+     * @return a reserva, ou null se o saldo não cobre o valor
+     */
+    public Reserva reservar(String userId, long saldo, LocalDateTime saldoLidoEm, long valor, String bearer) {
+        for (int tentativa = 0; tentativa < TENTATIVAS_RESERVA; tentativa++) {
+            String codigo = UUID.randomUUID().toString();
+            LocalDateTime agora = LocalDateTime.now();
+
+            // saldo só vale se nenhum lote terminou (ou está no meio) depois de lido
+            Query guarda = Query.query(new Criteria().andOperator(
+                    where("user_id").is(userId),
+                    where("comprometido").lte(saldo - valor),
+                    where("liquidando").is(null),
+                    new Criteria().orOperator(where("liquidado_em").is(null), where("liquidado_em").lt(saldoLidoEm))
+            ));
+            Update update = new Update()
+                    .inc("comprometido", valor)
+                    .push("reservas", new ReservaWins(codigo, valor, agora))
+                    .unset("bearer") // contas antigas guardavam o token do usuário
+                    .set("atualizado_em", agora);
+            if (mongo.updateFirst(guarda, update, ContaWins.class).getModifiedCount() > 0) {
+                log.info("[WinsLedger] {} wins reservados para usuário {} ({})", valor, userId, codigo);
+                return new Reserva(userId, codigo, valor);
+            }
+
+            ContaWins conta = mongo.findOne(Query.query(where("user_id").is(userId)), ContaWins.class);
+            if (conta == null) {
+                criarConta(userId);
+                continue;
+            }
+            boolean saldoAtual = conta.getLiquidando() == null
+                    && (conta.getLiquidadoEm() == null || conta.getLiquidadoEm().isBefore(saldoLidoEm));
+            if (saldoAtual) {
+                return null; // saldo insuficiente
+            }
+
+            // um lote foi aplicado na API depois da leitura: relê o saldo
+            saldoLidoEm = LocalDateTime.now();
+            Long wins = usuarioClient.buscarPorId(userId, bearer).wins();
+            saldo = wins != null ? wins : 0L;
+        }
+        throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Saldo de wins em atualização, tente novamente.");
+    }
+
+    /** A reserva vira débito (aplicado na API de usuários no próximo lote). */
+    public void confirmar(Reserva reserva) {
+        LocalDateTime agora = LocalDateTime.now();
+        ReservaWins confirmada = new ReservaWins(reserva.codigo(), reserva.valor(), agora);
+
+        Query reservada = Query.query(where("user_id").is(reserva.userId()).and("reservas.codigo").is(reserva.codigo()));
+        Update update = new Update()
+                .pull("reservas", new Document("codigo", reserva.codigo()))
+                .inc("pendente", reserva.valor())
+                .set("atualizado_em", agora);
+        update.push("confirmadas").slice(-CONFIRMADAS_GUARDADAS).each(confirmada);
+        if (mongo.updateFirst(reservada, update, ContaWins.class).getModifiedCount() > 0) return;
+
+        // reserva expirou (e foi liberada) antes do fim do início: debita mesmo assim
+        Update debito = new Update()
+                .inc("comprometido", reserva.valor())
+                .inc("pendente", reserva.valor())
+                .set("atualizado_em", agora);
+        debito.push("confirmadas").slice(-CONFIRMADAS_GUARDADAS).each(confirmada);
+        mongo.updateFirst(Query.query(where("user_id").is(reserva.userId())
+                .and("confirmadas.codigo").ne(reserva.codigo())), debito, ContaWins.class);
+        log.warn("[WinsLedger] Reserva {} do usuário {} já tinha expirado; débito aplicado direto", reserva.codigo(), reserva.userId());
+    }
+
+    /** Devolve a reserva: desfaz o comprometido e, se já confirmada, estorna o débito. Idempotente. */
+    public void liberar(Reserva reserva) {
+        LocalDateTime agora = LocalDateTime.now();
+
+        Query reservada = Query.query(where("user_id").is(reserva.userId()).and("reservas.codigo").is(reserva.codigo()));
+        Update liberacao = new Update()
+                .pull("reservas", new Document("codigo", reserva.codigo()))
+                .inc("comprometido", -reserva.valor())
+                .set("atualizado_em", agora);
+        if (mongo.updateFirst(reservada, liberacao, ContaWins.class).getModifiedCount() > 0) {
+            log.info("[WinsLedger] Reserva {} liberada ({} wins, usuário {})", reserva.codigo(), reserva.valor(), reserva.userId());
+            return;
+        }
+
+        // já confirmada: pendente negativo devolve os wins no próximo lote
+        Query confirmada = Query.query(where("user_id").is(reserva.userId()).and("confirmadas.codigo").is(reserva.codigo()));
+        Update estorno = new Update()
+                .pull("confirmadas", new Document("codigo", reserva.codigo()))
+                .inc("comprometido", -reserva.valor())
+                .inc("pendente", -reserva.valor())
+                .set("atualizado_em", agora);
+        if (mongo.updateFirst(confirmada, estorno, ContaWins.class).getModifiedCount() > 0) {
+            log.info("[WinsLedger] Reserva {} estornada ({} wins, usuário {})", reserva.codigo(), reserva.valor(), reserva.userId());
+        }
+    }
+
+    /** Aplica os débitos/estornos pendentes na API de usuários, um PUT por conta. */
+    @Scheduled(fixedDelayString = "${wins.liquidacao.poll-ms:2000}")
+    public void liquidar() {
+        for (int i = 0; i < lote; i++) {
+            ContaWins conta = pegarParaLiquidar();
+            if (conta == null) return;
+            liquidar(conta);
+        }
+    }
+
+    /** Reservas abandonadas (queda no meio de um início) voltam para o saldo. */
+    @Scheduled(fixedDelayString = "${wins.reserva.varredura-ms:60000}")
+    public void expirarReservas() {
+        LocalDateTime limite = LocalDateTime.now().minus(expiracaoReserva);
+        List<ContaWins> contas = mongo.find(Query.query(where("reservas.criado_em").lt(limite)).limit(lote), ContaWins.class);
+        for (ContaWins conta : contas) {
+            for (ReservaWins r : conta.getReservas()) {
+                if (r.getCriadoEm() != null && r.getCriadoEm().isBefore(limite)) {
+                    log.warn("[WinsLedger] Reserva {} do usuário {} expirou", r.getCodigo(), conta.getUserId());
+                    liberar(new Reserva(conta.getUserId(), r.getCodigo(), r.getValor()));
+                }
+            }
+        }
+    }
+
+    private void criarConta(String userId) {
+        LocalDateTime agora = LocalDateTime.now();
+        Update update = new Update()
+                .setOnInsert("comprometido", 0L)
+                .setOnInsert("pendente", 0L)
+                .setOnInsert("atualizado_em", agora);
+        try {
+            mongo.upsert(Query.query(where("user_id").is(userId)), update, ContaWins.class);
+        } catch (DuplicateKeyException e) {
+            // outra requisição do mesmo usuário criou a conta ao mesmo tempo
+        }
+    }
+
+    private ContaWins pegarParaLiquidar() {
+        LocalDateTime agora = LocalDateTime.now();
+        Query query = Query.query(new Criteria().andOperator(
+                new Criteria().orOperator(where("pendente").ne(0L), where("liquidando").ne(null)),
+                new Criteria().orOperator(where("lease_ate").is(null), where("lease_ate").lt(agora))
+        ));
+        Update update = new Update().set("lease_ate", agora.plus(lease));
+        return mongo.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), ContaWins.class);
+    }
+
+    private void liquidar(ContaWins conta) {
+        Query doLease = Query.query(where("_id").is(conta.getId()).and("lease_ate").is(conta.getLeaseAte()));
+        String userId = conta.getUserId();
+
+        if (conta.getLiquidando() != null) {
+            // caiu entre o PUT e a baixa: não dá para saber se a API aplicou; assume que sim
+            // (cobrar duas vezes é pior do que deixar de cobrar um lote)
+            long anterior = conta.getLiquidando();
+            mongo.updateFirst(doLease, baixa(anterior), ContaWins.class);
+            log.error("[WinsLedger] Lote de {} wins do usuário {} interrompido; assumido como aplicado", anterior, userId);
+            return;
+        }
+
+        long valor = conta.getPendente();
+        boolean enviado = false;
+        try {
+            String bearer = servicoToken.bearer();
+            UsuarioVersionado atual = usuarioClient.buscarVersionado(userId, bearer);
+            Long wins = atual.usuario().wins();
+            long saldo = wins != null ? wins : 0L;
+
+            mongo.updateFirst(doLease, new Update().set("liquidando", valor), ContaWins.class);
+            enviado = true;
+            UsuarioUpdateDTO update = new UsuarioUpdateDTO(
+                    null, null, null, null, null, null, null,
+                    Math.max(0L, saldo - valor),
+                    null, null, null
+            );
+            usuarioClient.atualizar(bearer, userId, update, atual.etag());
+
+            mongo.updateFirst(doLease, baixa(valor), ContaWins.class);
+            liquidacoes.increment();
+            log.info("[WinsLedger] ✅ {} wins liquidados para usuário {} ({} → {})", valor, userId, saldo, Math.max(0L, saldo - valor));
+        } catch (Exception e) {
+            if (versaoMudou(e)) {
+                // saldo alterado por outro serviço entre o GET e o PUT: refaz com o saldo relido
+                // depois da espera (sem ela, o mesmo loop pegaria a conta de novo na hora)
+                mongo.updateFirst(doLease, new Update()
+                        .unset("liquidando")
+                        .set("lease_ate", LocalDateTime.now().plus(esperaFalha)), ContaWins.class);
+                log.warn("[WinsLedger] Saldo do usuário {} mudou durante a liquidação; lote de {} wins será refeito", userId, valor);
+                return;
+            }
+            falhas.increment();
+            Update update = new Update()
+                    .set("lease_ate", LocalDateTime.now().plus(esperaFalha))
+                    .set("erro", e.getMessage());
+            if (!enviado || naoAplicado(e)) update.unset("liquidando");
+            mongo.updateFirst(doLease, update, ContaWins.class);
+            log.error("[WinsLedger] ❌ Falha ao liquidar {} wins do usuário {}: {}", valor, userId, e.getMessage());
+        }
+    }
+
+    /**
+     * O PUT com certeza não foi aplicado: não saiu daqui (bulkhead cheio, circuito aberto, conexão
+     * recusada) ou a API o recusou (4xx). 5xx e timeout de leitura não entram: um 502/504 do gateway
+     * pode voltar depois de a API ter gravado o saldo, e aí vale a regra do lote interrompido.
+     * O UsuarioClient embrulha tudo em ResponseStatusException, então procura na cadeia de causas.
+     */
+    private static boolean naoAplicado(Throwable e) {
+        for (Throwable c = e; c != null; c = c.getCause()) {
+            if (c instanceof BulkheadCheioException || c instanceof CircuitoAbertoException
+                    || c instanceof ConnectException || c instanceof HttpClientErrorException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** PUT condicional recusado (412): nada foi aplicado. */
+    private static boolean versaoMudou(Throwable e) {
+        for (Throwable c = e; c != null; c = c.getCause()) {
+            if (c instanceof HttpStatusCodeException h && h.getStatusCode().value() == HttpStatus.PRECONDITION_FAILED.value()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Update baixa(long valor) {
+        return new Update()
+                .inc("pendente", -valor)
+                .inc("comprometido", -valor)
+                .unset("liquidando")
+                .unset("lease_ate")
+                .unset("erro")
+                .unset("bearer")
+                .set("liquidado_em", LocalDateTime.now())
+                .set("atualizado_em", LocalDateTime.now());
+    }
+}
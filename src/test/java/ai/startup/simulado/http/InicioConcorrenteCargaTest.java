@@ -0,0 +1,247 @@
+package ai.startup.simulado.http;
+
+import ai.startup.simulado.usuario.UsuarioClient;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.management.UnixOperatingSystemMXBean;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Carga: N inícios simultâneos, cada um preso numa API de usuário lenta (a primeira chamada
+ * bloqueante de todo início), passando pelo Tomcat, pelo {@link UsuarioClient} e pelo RestTemplate
+ * do {@link HttpClientConfig} (pool + bulkhead). O stub segura todas as chamadas até ter N em
+ * andamento (ou até um prazo), então mede quantas ficaram em voo ao mesmo tempo e quantas threads
+ * de plataforma a JVM criou para isso.
+ * Bulkhead e pool do destino são abertos para N: em produção eles limitam de propósito a concorrência
+ * na API de destino; aqui o que se mede é o modelo de threads.
+ * Fica fora do {@code mvn test} padrão (tag {@code carga}): {@code mvn -Pcarga test}.
+ */
+@Tag("carga")
+class InicioConcorrenteCargaTest {
+
+    private static final int INICIOS = 2_000;
+    private static final int TOMCAT_THREADS = 200;
+    // por início: conexão do cliente, a aceita pelo Tomcat, a de saída para o stub e a aceita pelo stub
+    private static final long DESCRITORES_NECESSARIOS = 4L * INICIOS + 1_000;
+
+    @Test
+    void comVirtualThreadsMilharesDeIniciosEmVooSemCrescerThreads() throws Exception {
+        long descritores = maxDescritores();
+        assumeTrue(descritores < 0 || descritores >= DESCRITORES_NECESSARIOS,
+                "limite de descritores (" + descritores + ") abaixo de " + DESCRITORES_NECESSARIOS);
+
+        Resultado r = executar(true, Duration.ofSeconds(60));
+
+        assertThat(r.pico()).as("inícios em voo ao mesmo tempo (%s)", r).isEqualTo(INICIOS);
+        assertThat(r.sucessos()).as("inícios com 200 (%s)", r).isEqualTo(INICIOS);
+        assertThat(r.threadsCriadas()).as("threads de plataforma a mais durante a carga (%s)", r).isLessThan(100);
+    }
+
+    @Test
+    void semVirtualThreadsOTomcatLimitaOsIniciosEmVoo() throws Exception {
+        // controle: mesmo cenário com threads de plataforma; cada início em voo prende uma thread do
+        // Tomcat, então o pico não passa do máximo de threads (quanto ele chega perto depende do agendamento)
+        Resultado r = executar(false, Duration.ofSeconds(3));
+
+        assertThat(r.pico()).as("inícios em voo ao mesmo tempo (%s)", r)
+                .isPositive()
+                .isLessThanOrEqualTo(TOMCAT_THREADS);
+        assertThat(r.sucessos()).as("inícios com 200 (%s)", r).isEqualTo(INICIOS);
+    }
+
+    /** Máximo de descritores de arquivo do processo; -1 se a JVM não informa. */
+    private static long maxDescritores() {
+        return ManagementFactory.getOperatingSystemMXBean() instanceof UnixOperatingSystemMXBean os
+                ? os.getMaxFileDescriptorCount()
+                : -1L;
+    }
+
+    private Resultado executar(boolean threadsVirtuais, Duration prazo) throws Exception {
+        UsuarioLento stub = new UsuarioLento(INICIOS, prazo);
+        ConfigurableApplicationContext app = null;
+        ExecutorService clienteExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            // argumentos de linha de comando: precedem o application.properties
+            app = new SpringApplicationBuilder(App.class).run(
+                    "--server.port=0",
+                    "--spring.main.banner-mode=off",
+                    "--spring.threads.virtual.enabled=" + threadsVirtuais,
+                    "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                    "--api.usuario.base=http://127.0.0.1:" + stub.porta(),
+                    "--http.pool.usuario.max-conexoes=" + (INICIOS + 100),
+                    "--http.bulkhead.usuario.max-concorrentes=" + (INICIOS + 100),
+                    "--http.usuario.read-timeout-ms=120000"
+            );
+            int porta = ((WebServerApplicationContext) app).getWebServer().getPort();
+
+            HttpClient cliente = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clienteExecutor)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+            HttpRequest req = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + porta + "/carga/inicio"))
+                    .header("Authorization", "Bearer carga")
+                    .timeout(Duration.ofSeconds(120))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+
+            // aquece (Tomcat, RestTemplate, conversores) antes de medir as threads de base
+            stub.liberarAquecimento();
+            assertThat(cliente.send(req, HttpResponse.BodyHandlers.ofString()).statusCode()).isEqualTo(200);
+            stub.iniciarMedicao();
+
+            ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+            int base = mx.getThreadCount();
+            AtomicLong maxThreads = new AtomicLong(base);
+            Thread amostrador = Thread.ofPlatform().daemon().start(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    maxThreads.accumulateAndGet(mx.getThreadCount(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+
+            List<CompletableFuture<HttpResponse<String>>> respostas = new ArrayList<>();
+            for (int i = 0; i < INICIOS; i++) respostas.add(cliente.sendAsync(req, HttpResponse.BodyHandlers.ofString()));
+            int sucessos = 0;
+            for (var f : respostas) if (f.get(180, TimeUnit.SECONDS).statusCode() == 200) sucessos++;
+
+            amostrador.interrupt();
+            amostrador.join();
+            // a thread do amostrador (criada depois da base) fica fora da conta
+            int criadas = (int) (maxThreads.get() - base) - 1;
+            return new Resultado(threadsVirtuais, stub.pico(), sucessos, base, (int) maxThreads.get(), criadas);
+        } finally {
+            if (app != null) app.close();
+            clienteExecutor.shutdownNow();
+            stub.parar();
+        }
+    }
+
+    private record Resultado(boolean threadsVirtuais, int pico, int sucessos,
+                             int threadsBase, int threadsMax, int threadsCriadas) {}
+
+    /**
+     * API de usuário que segura cada GET /users/me até haver {@code alvo} chamadas em andamento
+     * ou até {@code prazo} depois da primeira (o que vier antes).
+     */
+    private static final class UsuarioLento {
+        private final HttpServer server;
+        private final int alvo;
+        private final Duration prazo;
+        private final AtomicInteger emAndamento = new AtomicInteger();
+        private final AtomicInteger pico = new AtomicInteger();
+        private final CountDownLatch todosChegaram = new CountDownLatch(1);
+        private final AtomicLong primeiraNs = new AtomicLong();
+        private volatile boolean medindo;
+
+        UsuarioLento(int alvo, Duration prazo) throws Exception {
+            this.alvo = alvo;
+            this.prazo = prazo;
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/users/me", ex -> {
+                if (medindo) segurar();
+                byte[] body = "{\"id\":\"u1\",\"email\":\"carga@teste\"}".getBytes(StandardCharsets.UTF_8);
+                ex.getResponseHeaders().set("Content-Type", "application/json");
+                ex.sendResponseHeaders(200, body.length);
+                ex.getResponseBody().write(body);
+                ex.close();
+            });
+            server.start();
+        }
+
+        private void segurar() {
+            primeiraNs.compareAndSet(0, System.nanoTime());
+            int agora = emAndamento.incrementAndGet();
+            pico.accumulateAndGet(agora, Math::max);
+            if (agora >= alvo) todosChegaram.countDown();
+            try {
+                long restante = prazo.toNanos() - (System.nanoTime() - primeiraNs.get());
+                if (restante > 0) todosChegaram.await(restante, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                emAndamento.decrementAndGet();
+            }
+        }
+
+        int porta() {
+            return server.getAddress().getPort();
+        }
+
+        int pico() {
+            return pico.get();
+        }
+
+        void liberarAquecimento() {
+            medindo = false;
+        }
+
+        void iniciarMedicao() {
+            medindo = true;
+        }
+
+        void parar() {
+            server.stop(0);
+        }
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration(exclude = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class,
+            MongoRepositoriesAutoConfiguration.class})
+    @Import({HttpClientConfig.class, UsuarioClient.class, InicioController.class})
+    static class App {}
+
+    /** Primeira etapa bloqueante de todo início (SimuladoService.iniciar*): identificar o usuário. */
+    @RestController
+    static class InicioController {
+        private final UsuarioClient usuarioClient;
+
+        InicioController(UsuarioClient usuarioClient) {
+            this.usuarioClient = usuarioClient;
+        }
+
+        @PostMapping("/carga/inicio")
+        String iniciar(@RequestHeader("Authorization") String bearer) {
+            return usuarioClient.me(bearer).id();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ai.startup.simulado.perfil;
+
+import ai.startup.simulado.questaosimulado.QuestaoResumo;
+import ai.startup.simulado.support.TemplateLoader;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * O PerfilEngine é um singleton compartilhado entre finalizes: N usuários agregados em paralelo
+ * precisam dar exatamente o mesmo perfil que a execução sequencial de cada um.
+ */
+class PerfilEngineConcurrencyTest {
+
+    private static final int USUARIOS = 48;
+    private static final int THREADS = 16;
+    private static final int RODADAS = 5;
+    private static final String[] DIFICULDADES = {"easy", "medium", "hard", "Medium", null};
+
+    private static PerfilEngine engine;
+    private static PerfilTemplate template;
+    private static final long AGORA = LocalDateTime.of(2025, 5, 10, 12, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+
+    @BeforeAll
+    static void carregarTemplate() {
+        var provider = new PerfilTemplateProvider(new TemplateLoader(), new DefaultResourceLoader(),
+                "classpath:templates/profile_template.json");
+        provider.iniciar();
+        engine = new PerfilEngine(provider);
+        template = provider.getTemplate();
+    }
+
+    @Test
+    void agregacoesParalelasDaoOMesmoPerfilQueASequencial() throws Exception {
+        List<Usuario> usuarios = new ArrayList<>();
+        Random rnd = new Random(20250510L);
+        for (int u = 0; u < USUARIOS; u++) usuarios.add(gerarUsuario("user-" + u, rnd));
+
+        List<Map<String, TopicDTO>> esperado = new ArrayList<>();
+        for (Usuario u : usuarios) esperado.add(calcular(u));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int rodada = 0; rodada < RODADAS; rodada++) {
+                CountDownLatch largada = new CountDownLatch(1);
+                List<Future<Map<String, TopicDTO>>> futures = new ArrayList<>();
+                for (Usuario u : usuarios) {
+                    futures.add(executor.submit(() -> {
+                        largada.await();
+                        return calcular(u);
+                    }));
+                }
+                largada.countDown();
+
+                for (int i = 0; i < usuarios.size(); i++) {
+                    assertThat(futures.get(i).get())
+                            .as("perfil de %s na rodada %d", usuarios.get(i).userId(), rodada)
+                            .isEqualTo(esperado.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void perfisDeUsuariosDiferentesNaoSeMisturam() {
+        Random rnd = new Random(7L);
+        Usuario a = gerarUsuario("a", rnd);
+        Usuario b = gerarUsuario("b", rnd);
+        assertThat(calcular(a)).isNotEqualTo(calcular(b));
+    }
+
+    /** Mesmo fluxo do recálculo incremental: um agregarQuestoes por simulado, gravar e montar. */
+    private static Map<String, TopicDTO> calcular(Usuario u) {
+        PerfilAcumulado acumulado = new PerfilAcumulado();
+        acumulado.setUserId(u.userId());
+        acumulado.setSubskillsUltimo(u.subskillsUltimo());
+        acumulado.setSubskillsPenultimo(Set.of());
+
+        for (var simulado : u.simulados().entrySet()) {
+            PerfilDenso denso = engine.carregar(acumulado);
+            engine.agregarQuestoes(denso, simulado.getValue(),
+                    new PerfilEngine.Contexto(u.datas(), AGORA));
+            denso.gravar();
+            Thread.yield(); // abre espaço para intercalar com os outros usuários
+        }
+        return engine.montarPerfil(engine.carregar(acumulado), new PerfilEngine.Contexto(null, AGORA));
+    }
+
+    private static Usuario gerarUsuario(String userId, Random rnd) {
+        Map<String, List<QuestaoResumo>> simulados = new LinkedHashMap<>();
+        Map<String, Long> datas = new HashMap<>();
+        int qtdSimulados = 1 + rnd.nextInt(4);
+        for (int s = 0; s < qtdSimulados; s++) {
+            String simId = userId + "-sim" + s;
+            datas.put(simId, AGORA - rnd.nextInt(5 * 24) * 3_600_000L);
+            List<QuestaoResumo> qs = new ArrayList<>();
+            for (int k = 0; k < 44; k++) {
+                int i = rnd.nextInt(template.tamanho());
+                String marcada = rnd.nextBoolean() ? "A" : "B";
+                qs.add(new QuestaoResumo(template.topic(i), template.subskill(i), template.structure(i),
+                        DIFICULDADES[rnd.nextInt(DIFICULDADES.length)], marcada, "a",
+                        rnd.nextInt(4) == 0, rnd.nextInt(6) == 0, simId));
+            }
+            simulados.put(simId, qs);
+        }
+        Set<String> ultimo = Set.of(template.subskill(rnd.nextInt(template.tamanho())));
+        return new Usuario(userId, simulados, datas, ultimo);
+    }
+
+    private record Usuario(String userId,
+                           Map<String, List<QuestaoResumo>> simulados,
+                           Map<String, Long> datas,
+                           Set<String> subskillsUltimo) {}
+}
@@ -0,0 +1,50 @@
+package ai.startup.simulado.perfil;
+
+import ai.startup.simulado.support.TemplateLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PerfilEngineTest {
+
+    private static final String TEMPLATE = """
+            {
+              "topics": {
+                "algebra": {
+                  "subskills": {
+                    "com_total": {
+                      "total_estruturas_s": 5,
+                      "structures": { "a": {}, "b": {} }
+                    },
+                    "sem_total": {
+                      "structures": { "c": {}, "d": {}, "e": {} }
+                    }
+                  }
+                }
+              }
+            }
+            """;
+
+    @Test
+    void totalEstruturasVemDoTemplateComFallbackParaAContagem(@TempDir Path dir) throws IOException {
+        Path arquivo = Files.writeString(dir.resolve("profile_template.json"), TEMPLATE);
+        var provider = new PerfilTemplateProvider(new TemplateLoader(), new DefaultResourceLoader(),
+                arquivo.toUri().toString());
+        provider.iniciar();
+        PerfilEngine engine = new PerfilEngine(provider);
+
+        PerfilAcumulado acumulado = new PerfilAcumulado();
+        Map<String, TopicDTO> perfil = engine.montarPerfil(engine.carregar(acumulado), new PerfilEngine.Contexto(null, 0L));
+
+        var subskills = perfil.get("algebra").subskills();
+        assertThat(subskills.get("com_total").total_estruturas_s()).isEqualTo(5L);
+        assertThat(subskills.get("sem_total").total_estruturas_s()).isEqualTo(3L);
+    }
+}
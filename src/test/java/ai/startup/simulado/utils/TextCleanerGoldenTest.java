@@ -0,0 +1,119 @@
+package ai.startup.simulado.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Corpus dourado: o {@link TextCleaner} atual (regex pré-compiladas, cache) tem que devolver
+ * exatamente o mesmo texto que o {@link TextCleanerOriginal} para todas as strings do seed_data,
+ * mais as variações duplicadas que a limpeza existe para desfazer.
+ */
+class TextCleanerGoldenTest {
+
+    private static final Path SEED_DATA = Paths.get("src/main/resources/seed_data");
+
+    private static final List<String> CASOS_DOC = List.of(
+            "5x = 3(y - z)5x = 3(y - z)", "\\(x=3\\)\\(x=3\\)", "g(x) = 3x² • 2-3g(x) = 3x2 • 2-3",
+            "$80$80", "15%15%", "3⁻²3⁻²", "\\(x^2\\) x2 more", "x2 \\(x^2\\)", "a = $5 and b = $6x",
+            "y = 12 * y = 12", "\\[a+b\\]\\[a+b\\]", "  ", "", "x – 2 − 3");
+
+    private static List<String> corpus;
+    private static List<String> esperado;
+
+    @BeforeAll
+    static void carregarCorpus() throws IOException {
+        ObjectMapper om = new ObjectMapper();
+        List<String> textos = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(SEED_DATA, "*.json*")) {
+            for (Path p : ds) coletar(om.readTree(p.toFile()), textos);
+        }
+        assertThat(textos).as("strings do seed_data").hasSizeGreaterThan(1000);
+
+        corpus = new ArrayList<>(CASOS_DOC);
+        for (String s : textos) {
+            corpus.add(s);
+            corpus.add(s + s);
+            corpus.add(s + " " + s);
+            if (s.length() > 10) corpus.add(s.substring(0, s.length() / 2) + s);
+        }
+
+        esperado = new ArrayList<>(corpus.size());
+        for (String s : corpus) esperado.add(executar(TextCleanerOriginal::cleanText, s));
+    }
+
+    @AfterEach
+    void desligarCache() {
+        // senão, conforme a ordem, cleanTextIgualAoOriginal passaria pelo cache e não pelo caminho sem ele
+        TextCleaner.desabilitarCache();
+    }
+
+    @Test
+    void cleanTextIgualAoOriginal() {
+        assertThat(divergencias(TextCleaner::cleanText)).isEmpty();
+    }
+
+    @Test
+    void cleanTextComCacheIgualAoOriginal() {
+        TextCleaner.habilitarCache(8L << 20);
+        // duas passadas: a segunda sai do cache
+        assertThat(divergencias(TextCleaner::cleanText)).isEmpty();
+        assertThat(divergencias(TextCleaner::cleanText)).isEmpty();
+    }
+
+    @Test
+    void cleanOptionsECleanStringListIguaisAoOriginal() {
+        // só entradas que o original limpa sem exceção (uma exceção derruba a lista inteira)
+        List<String> validos = new ArrayList<>();
+        for (int i = 0; i < corpus.size() && validos.size() < 500; i++) {
+            if (!esperado.get(i).startsWith("EXC:")) validos.add(corpus.get(i));
+        }
+        Map<String, String> opcoes = new LinkedHashMap<>();
+        for (int i = 0; i < validos.size(); i++) opcoes.put("k" + i, validos.get(i));
+
+        assertThat(TextCleaner.cleanOptions(opcoes)).isEqualTo(TextCleanerOriginal.cleanOptions(opcoes));
+        assertThat(TextCleaner.cleanStringList(validos)).isEqualTo(TextCleanerOriginal.cleanStringList(validos));
+        assertThat(TextCleaner.cleanOptions(null)).isNull();
+        assertThat(TextCleaner.cleanStringList(null)).isNull();
+    }
+
+    /** Entradas em que o cleaner atual difere do original (texto ou exceção lançada). */
+    private static List<String> divergencias(Function<String, String> atual) {
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < corpus.size(); i++) {
+            String obtido = executar(atual, corpus.get(i));
+            if (!esperado.get(i).equals(obtido)) {
+                out.add(corpus.get(i) + "\n  original: " + esperado.get(i) + "\n  atual:    " + obtido);
+            }
+        }
+        return out;
+    }
+
+    private static String executar(Function<String, String> f, String s) {
+        try {
+            return String.valueOf(f.apply(s));
+        } catch (RuntimeException e) {
+            return "EXC:" + e.getClass().getName();
+        }
+    }
+
+    private static void coletar(JsonNode n, List<String> out) {
+        if (n.isTextual()) out.add(n.asText());
+        else n.forEach(c -> coletar(c, out));
+    }
+}